@@ -0,0 +1,76 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage.impl.jdbc;
+
+import java.util.concurrent.locks.ReentrantLock;
+import org.sonews.storage.StorageBackendException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Allocates the database-unique article IDs for all JDBCDatabase instances.
+ * The IDs are reserved in blocks of BLOCK_SIZE from the article_id row of
+ * the sequences table, so the database is updated only once per block and
+ * several sonews instances may write to the same database. IDs of failed
+ * inserts and the unused rest of a block at shutdown are not reused.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+@Component
+class ArticleIdAllocator {
+
+    /** Number of IDs reserved at once */
+    static final int BLOCK_SIZE = 100;
+
+    /**
+     * Reserves a block of IDs in the database.
+     */
+    @FunctionalInterface
+    interface BlockReservation {
+
+        /**
+         * @param count Number of IDs to reserve.
+         * @return The first of the reserved IDs.
+         */
+        int reserve(int count) throws StorageBackendException;
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private int nextID = 0;
+    private int endID = 0;
+
+    /**
+     * @param reservation Used to reserve a new block if the current one is
+     *        exhausted.
+     * @return A new unique article ID.
+     * @throws StorageBackendException
+     */
+    int next(BlockReservation reservation) throws StorageBackendException {
+        lock.lock();
+        try {
+            if (nextID == endID) {
+                nextID = reservation.reserve(BLOCK_SIZE);
+                endID = nextID + BLOCK_SIZE;
+            }
+            return nextID++;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage.impl.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import org.sonews.storage.Storage;
+import org.sonews.storage.StorageBackendException;
+import org.sonews.util.Log;
+
+/**
+ * Pool of JDBCDatabase instances. Every call to the Storage returned by
+ * storage() checks out an idle JDBCDatabase exclusively, invokes the method
+ * on it and returns it to the pool afterwards. If no instance becomes idle
+ * within the checkout timeout a StorageBackendException is thrown.
+ *
+ * Instances that were idle for a while are validated before they are handed
+ * out, so that connections dropped by the database server are reopened
+ * before they are used.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+class JDBCConnectionPool implements InvocationHandler {
+
+    /** Idle time in milliseconds after which an instance is validated */
+    private static final long VALIDATION_INTERVAL = 30 * 1000;
+
+    /** Timeout in seconds for the validation of a connection */
+    private static final int VALIDATION_TIMEOUT = 2;
+
+    private record Pooled(JDBCDatabase database, long returned) {
+    }
+
+    private final List<JDBCDatabase> databases;
+    private final BlockingQueue<Pooled> idle;
+    private final long checkoutTimeout;
+    private final Storage storage;
+
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+
+    /**
+     * @param databases Instances managed by this pool.
+     * @param checkoutTimeout Maximum time in milliseconds to wait for an idle
+     *        instance.
+     */
+    JDBCConnectionPool(List<JDBCDatabase> databases, long checkoutTimeout) {
+        this.databases = databases;
+        this.idle = new ArrayBlockingQueue<>(databases.size());
+        this.checkoutTimeout = checkoutTimeout;
+        long now = System.currentTimeMillis();
+        databases.forEach(db -> idle.add(new Pooled(db, now)));
+        this.storage = (Storage) Proxy.newProxyInstance(Storage.class.getClassLoader(),
+                new Class<?>[] { Storage.class }, this);
+    }
+
+    /**
+     * @return Storage that checks out a pooled instance for every call.
+     */
+    Storage storage() {
+        return storage;
+    }
+
+    /**
+     * @return All instances of this pool, idle or not.
+     */
+    List<JDBCDatabase> getDatabases() {
+        return databases;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(this, args);
+        }
+
+        JDBCDatabase database = checkout();
+        try {
+            return method.invoke(database, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        } finally {
+            checkin(database);
+        }
+    }
+
+    /**
+     * Takes an idle instance out of the pool, waiting at most for the
+     * checkout timeout.
+     *
+     * @return
+     * @throws StorageBackendException
+     */
+    JDBCDatabase checkout() throws StorageBackendException {
+        checkouts.increment();
+
+        Pooled pooled = idle.poll();
+        if (pooled == null) {
+            waits.increment();
+            long start = System.nanoTime();
+            try {
+                pooled = idle.poll(checkoutTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new StorageBackendException(ex);
+            } finally {
+                waitNanos.add(System.nanoTime() - start);
+            }
+
+            if (pooled == null) {
+                timeouts.increment();
+                Log.get().log(Level.WARNING, "No database connection available within {0} ms: {1}",
+                        new Object[] { checkoutTimeout, this });
+                throw new StorageBackendException("Database connection pool exhausted");
+            }
+        }
+
+        int n = inUse.incrementAndGet();
+        peakInUse.accumulateAndGet(n, Math::max);
+
+        JDBCDatabase database = pooled.database();
+        if (System.currentTimeMillis() - pooled.returned() > VALIDATION_INTERVAL
+                && !database.isValid(VALIDATION_TIMEOUT)) {
+            invalidated.increment();
+            try {
+                database.reconnect();
+            } catch (StorageBackendException ex) {
+                checkin(database);
+                throw ex;
+            }
+        }
+        return database;
+    }
+
+    /**
+     * Returns an instance that was checked out before to the pool.
+     *
+     * @param database
+     */
+    void checkin(JDBCDatabase database) {
+        inUse.decrementAndGet();
+        idle.add(new Pooled(database, System.currentTimeMillis()));
+    }
+
+    /**
+     * @return Number of instances currently checked out.
+     */
+    int getInUse() {
+        return inUse.get();
+    }
+
+    @Override
+    public String toString() {
+        long numWaits = waits.sum();
+        return String.format("size=%d inUse=%d peak=%d checkouts=%d waits=%d "
+                + "timeouts=%d avgWait=%.1fms invalidated=%d",
+                databases.size(), inUse.get(), peakInUse.get(), checkouts.sum(),
+                numWaits, timeouts.sum(),
+                numWaits == 0 ? 0.0 : waitNanos.sum() / 1e6 / numWaits,
+                invalidated.sum());
+    }
+}
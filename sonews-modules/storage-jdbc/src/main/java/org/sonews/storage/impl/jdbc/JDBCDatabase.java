@@ -23,25 +23,32 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.mail.Header;
+import javax.mail.internet.InternetHeaders;
 import javax.mail.internet.MimeUtility;
 import org.sonews.config.Config;
 import org.sonews.storage.Article;
 import org.sonews.storage.Group;
+import org.sonews.storage.GroupStatistics;
+import org.sonews.storage.Overview;
 import org.sonews.storage.Storage;
 import org.sonews.storage.StorageBackendException;
 import org.sonews.storage.StorageManager;
 import org.sonews.util.Log;
 import org.sonews.util.Pair;
+import org.sonews.util.Wildmat;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -59,14 +66,21 @@ public class JDBCDatabase implements Storage {
 
     public static final int MAX_RESTARTS = 2;
 
+    /** Number of articles per transaction in rebuildOverview() */
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
     @Autowired
     private Log log;
 
+    @Autowired
+    private ArticleIdAllocator articleIdAllocator;
+
     protected Connection conn = null;
     protected PreparedStatement pstmtAddArticle1 = null;
     protected PreparedStatement pstmtAddArticle2 = null;
     protected PreparedStatement pstmtAddArticle3 = null;
     protected PreparedStatement pstmtAddArticle4 = null;
+    protected PreparedStatement pstmtAddOverview = null;
     protected PreparedStatement pstmtCountArticles = null;
     protected PreparedStatement pstmtCreateOrUpdateGroup0 = null;
     protected PreparedStatement pstmtCreateOrUpdateGroup1 = null;
@@ -75,33 +89,60 @@ public class JDBCDatabase implements Storage {
     protected PreparedStatement pstmtDeleteArticle1 = null;
     protected PreparedStatement pstmtDeleteArticle2 = null;
     protected PreparedStatement pstmtDeleteArticle3 = null;
+    protected PreparedStatement pstmtDeleteOverview = null;
+    protected PreparedStatement pstmtExpire = null;
+    protected PreparedStatement pstmtDropGroup = null;
+    protected PreparedStatement pstmtRemovePostings0 = null;
+    protected PreparedStatement pstmtRemovePostings1 = null;
+    protected PreparedStatement pstmtRemovePostings2 = null;
+    protected PreparedStatement pstmtRemovePostings3 = null;
+    protected PreparedStatement pstmtRemovePostings4 = null;
+    protected PreparedStatement pstmtGetArrivalCutoff = null;
     protected PreparedStatement pstmtGetArticle0 = null;
     protected PreparedStatement pstmtGetArticle1 = null;
     protected PreparedStatement pstmtGetArticleHeaders0 = null;
     protected PreparedStatement pstmtGetArticleHeaders1 = null;
+    protected PreparedStatement pstmtGetArticleHeaders2 = null;
     protected PreparedStatement pstmtGetArticleHeads = null;
     protected PreparedStatement pstmtGetArticleIDs = null;
     protected PreparedStatement pstmtGetArticleIndex = null;
     protected PreparedStatement pstmtGetFirstArticleNumber = null;
     protected PreparedStatement pstmtGetGroups = null;
+    protected PreparedStatement pstmtGetGroupStatistics = null;
     protected PreparedStatement pstmtGetLastArticleNumber = null;
     protected PreparedStatement pstmtGetMaxArticleID = null;
-    protected PreparedStatement pstmtGetMaxArticleIndex = null;
+    protected PreparedStatement pstmtIncrementSequence = null;
+    protected PreparedStatement pstmtGetSequence = null;
+    protected PreparedStatement pstmtGetWatermark = null;
     protected PreparedStatement pstmtGetOldestArticle = null;
+    protected PreparedStatement pstmtGetOverview = null;
     protected PreparedStatement pstmtGetPostingsCount = null;
     protected PreparedStatement pstmtIsArticleExisting = null;
     protected PreparedStatement pstmtPurgeGroup0 = null;
     protected PreparedStatement pstmtPurgeGroup1 = null;
-    protected PreparedStatement pstmtUpdateWatermark = null;
+    protected PreparedStatement pstmtRebuildOverview = null;
+    protected PreparedStatement pstmtIncrementWatermark = null;
 
     /**
      * How many times the database connection was reinitialized
      */
     protected int restarts = 0;
 
-    protected synchronized void prepareGetPostingsCountStatement() throws SQLException {
-        this.pstmtGetPostingsCount = conn
-                .prepareStatement("SELECT Count(*) FROM postings WHERE group_id = ?");
+    /**
+     * Guards the connection and the prepared statements. A ReentrantLock is
+     * used instead of synchronized methods, as a virtual thread blocking on
+     * JDBC I/O while holding a monitor would pin its carrier thread.
+     */
+    protected final ReentrantLock lock = new ReentrantLock();
+
+    protected void prepareGetPostingsCountStatement() throws SQLException {
+        lock.lock();
+        try {
+            this.pstmtGetPostingsCount = conn
+                    .prepareStatement("SELECT Count(*) FROM postings WHERE group_id = ?");
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -110,157 +151,242 @@ public class JDBCDatabase implements Storage {
      * @throws java.sql.SQLException
      */
     @PostConstruct
-    protected synchronized void arise() throws SQLException {
-        try {
-            // Load database driver
-            var driver = Class.forName(Config.inst().get(Config.LEVEL_FILE,
-                    Config.STORAGE_DBMSDRIVER, "java.lang.Object"));
-            log.log(Level.INFO, "JDBC Driver {0} loaded.", driver.toString());
-
-            // Establish database connection
-            this.conn = DriverManager.getConnection(
-                    Config.inst().get(Config.LEVEL_FILE,
-                            Config.STORAGE_DATABASE, "<not specified>"),
-                    Config.inst().get(Config.LEVEL_FILE, Config.STORAGE_USER,
-                            "root"),
-                    Config.inst().get(Config.LEVEL_FILE,
-                            Config.STORAGE_PASSWORD, ""));
-
-            conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
-            if (conn.getTransactionIsolation() != Connection.TRANSACTION_SERIALIZABLE) {
-                log.warning("Database is NOT fully serializable!");
-            }
-
-            // Prepare statements for method addArticle()
-            this.pstmtAddArticle1 = conn
-                    .prepareStatement("INSERT INTO articles (article_id, body) VALUES(?, ?)");
-            this.pstmtAddArticle2 = conn
-                    .prepareStatement("INSERT INTO headers (article_id, header_key, header_value, header_index) "
-                            + "VALUES (?, ?, ?, ?)");
-            this.pstmtAddArticle3 = conn
-                    .prepareStatement("INSERT INTO postings (group_id, article_id, article_index)"
-                            + "VALUES (?, ?, ?)");
-            this.pstmtAddArticle4 = conn
-                    .prepareStatement("INSERT INTO article_ids (article_id, message_id) VALUES (?, ?)");
-
-            // Prepare statement for method countArticles()
-            this.pstmtCountArticles = conn
-                    .prepareStatement("SELECT Count(article_id) FROM article_ids");
-
-            // Prepare statements for method createOrUpdateGroup(group)
-            this.pstmtCreateOrUpdateGroup0 = conn
-                    .prepareStatement("SELECT group_id FROM groups WHERE group_id = ?");
-            this.pstmtCreateOrUpdateGroup1 = conn
-                    .prepareStatement("INSERT INTO groups (group_id, name, flags, watermark) "
-                            + "VALUES (?, ?, ?, 0)");
-            this.pstmtCreateOrUpdateGroup2 = conn
-                    .prepareStatement("UPDATE groups SET name = ?, flags = ? WHERE group_id = ?");
-
-            // Prepare statements for method delete(article)
-            this.pstmtDeleteArticle0 = conn
-                    .prepareStatement("DELETE FROM articles WHERE article_id = "
-                            + "(SELECT article_id FROM article_ids WHERE message_id = ?)");
-            this.pstmtDeleteArticle1 = conn
-                    .prepareStatement("DELETE FROM headers WHERE article_id = "
-                            + "(SELECT article_id FROM article_ids WHERE message_id = ?)");
-            this.pstmtDeleteArticle2 = conn
-                    .prepareStatement("DELETE FROM postings WHERE article_id = "
-                            + "(SELECT article_id FROM article_ids WHERE message_id = ?)");
-            this.pstmtDeleteArticle3 = conn
-                    .prepareStatement("DELETE FROM article_ids WHERE message_id = ?");
-
-            // Prepare statements for methods getArticle()
-            this.pstmtGetArticle0 = conn
-                    .prepareStatement("SELECT * FROM articles  WHERE article_id = "
-                            + "(SELECT article_id FROM article_ids WHERE message_id = ?)");
-            this.pstmtGetArticle1 = conn
-                    .prepareStatement("SELECT * FROM articles WHERE article_id = "
-                            + "(SELECT article_id FROM postings WHERE "
-                            + "article_index = ? AND group_id = ?)");
-
-            // Prepare statement for method getArticleHeaders()
-            this.pstmtGetArticleHeaders0 = conn
-                    .prepareStatement("SELECT header_key, header_value FROM headers WHERE article_id = ? "
-                            + "ORDER BY header_index ASC");
-
-            // Prepare statement for method getArticleHeaders(regular expr
-            // pattern)
-            this.pstmtGetArticleHeaders1 = conn
-                    .prepareStatement("SELECT p.article_index, h.header_value FROM headers h "
-                            + "INNER JOIN postings p ON h.article_id = p.article_id "
-                            + "INNER JOIN groups g ON p.group_id = g.group_id "
-                            + "WHERE g.name          =  ? AND "
-                            + "h.header_key    =  ? AND "
-                            + "p.article_index >= ? "
-                            + "ORDER BY p.article_index ASC");
-
-            this.pstmtGetArticleIDs = conn
-                    .prepareStatement("SELECT article_index FROM postings WHERE group_id = ?");
-
-            // Prepare statement for method getArticleIndex
-            this.pstmtGetArticleIndex = conn
-                    .prepareStatement("SELECT article_index FROM postings WHERE "
-                            + "article_id = (SELECT article_id FROM article_ids "
-                            + "WHERE message_id = ?) " + " AND group_id = ?");
-
-            // Prepare statements for method getArticleHeads()
-            this.pstmtGetArticleHeads = conn
-                    .prepareStatement("SELECT article_id, article_index FROM postings WHERE "
-                            + "postings.group_id = ? AND article_index >= ? AND "
-                            + "article_index <= ?");
-
-            // Prepare statement for method getLastArticleNumber()
-            this.pstmtGetLastArticleNumber = conn
-                    .prepareStatement("SELECT Max(article_index) FROM postings WHERE group_id = ?");
-
-            // Prepare statement for method getMaxArticleID()
-            this.pstmtGetMaxArticleID = conn
-                    .prepareStatement("SELECT Max(article_id) FROM articles");
-
-            // Prepare statement for method getMaxArticleIndex()
-            this.pstmtGetMaxArticleIndex = conn
-                    .prepareStatement("SELECT watermark FROM groups WHERE group_id = ?");
-
-            // Prepare statement for method getOldestArticle()
-            this.pstmtGetOldestArticle = conn
-                    .prepareStatement("SELECT message_id FROM article_ids WHERE article_id = "
-                            + "(SELECT Min(article_id) FROM article_ids)");
-
-            // Prepare statement for method getFirstArticleNumber()
-            this.pstmtGetFirstArticleNumber = conn
-                    .prepareStatement("SELECT Min(article_index) FROM postings WHERE group_id = ?");
-
-            pstmtGetGroups = conn.prepareStatement("SELECT * FROM groups");
-
-            // Prepare statement for method getPostingsCount()
-            prepareGetPostingsCountStatement();
-
-            // Prepare statement for method isArticleExisting()
-            this.pstmtIsArticleExisting = conn
-                    .prepareStatement("SELECT Count(article_id) FROM article_ids WHERE message_id = ?");
-
-            // Prepare statements for method purgeGroup()
-            this.pstmtPurgeGroup0 = conn
-                    .prepareStatement("DELETE FROM peer_subscriptions WHERE group_id = ?");
-            this.pstmtPurgeGroup1 = conn
-                    .prepareStatement("DELETE FROM groups WHERE group_id = ?");
-
-            // Prepare statement for method updateWatermark()
-            pstmtUpdateWatermark = conn.prepareStatement(
-                    "UPDATE groups SET watermark = ? WHERE group_id = ?");
-        } catch (Exception ex) {
-            throw new Error("JDBC Driver not found!", ex);
-        }
-    }
-
-    protected synchronized void closeResultSet(ResultSet rs) {
-        if (rs != null) {
+    protected void arise() throws SQLException {
+        lock.lock();
+        try {
             try {
-                rs.close();
-            } catch (SQLException ex) {
-                // Ignore exception
+                // Load database driver
+                var driver = Class.forName(Config.inst().get(Config.LEVEL_FILE,
+                        Config.STORAGE_DBMSDRIVER, "java.lang.Object"));
+                log.log(Level.INFO, "JDBC Driver {0} loaded.", driver.toString());
+
+                // Establish database connection
+                this.conn = DriverManager.getConnection(
+                        Config.inst().get(Config.LEVEL_FILE,
+                                Config.STORAGE_DATABASE, "<not specified>"),
+                        Config.inst().get(Config.LEVEL_FILE, Config.STORAGE_USER,
+                                "root"),
+                        Config.inst().get(Config.LEVEL_FILE,
+                                Config.STORAGE_PASSWORD, ""));
+
+                conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+                if (conn.getTransactionIsolation() != Connection.TRANSACTION_SERIALIZABLE) {
+                    log.warning("Database is NOT fully serializable!");
+                }
+
+                // Prepare statements for method addArticle()
+                this.pstmtAddArticle1 = conn
+                        .prepareStatement("INSERT INTO articles (article_id, body, arrival) VALUES(?, ?, ?)");
+                this.pstmtAddArticle2 = conn
+                        .prepareStatement("INSERT INTO headers (article_id, header_key, header_value, header_index) "
+                                + "VALUES (?, ?, ?, ?)");
+                this.pstmtAddArticle3 = conn
+                        .prepareStatement("INSERT INTO postings (group_id, article_id, article_index)"
+                                + "VALUES (?, ?, ?)");
+                this.pstmtAddArticle4 = conn
+                        .prepareStatement("INSERT INTO article_ids (article_id, message_id) VALUES (?, ?)");
+                this.pstmtAddOverview = conn
+                        .prepareStatement("INSERT INTO overview (group_id, article_index, article_id, overview) "
+                                + "VALUES (?, ?, ?, ?)");
+
+                // Prepare statement for method countArticles()
+                this.pstmtCountArticles = conn
+                        .prepareStatement("SELECT Count(article_id) FROM article_ids");
+
+                // Prepare statements for method createOrUpdateGroup(group)
+                this.pstmtCreateOrUpdateGroup0 = conn
+                        .prepareStatement("SELECT group_id FROM groups WHERE group_id = ?");
+                this.pstmtCreateOrUpdateGroup1 = conn
+                        .prepareStatement("INSERT INTO groups (group_id, name, flags, watermark) "
+                                + "VALUES (?, ?, ?, 0)");
+                this.pstmtCreateOrUpdateGroup2 = conn
+                        .prepareStatement("UPDATE groups SET name = ?, flags = ? WHERE group_id = ?");
+
+                // Prepare statements for method delete(article)
+                this.pstmtDeleteArticle0 = conn
+                        .prepareStatement("DELETE FROM articles WHERE article_id = "
+                                + "(SELECT article_id FROM article_ids WHERE message_id = ?)");
+                this.pstmtDeleteArticle1 = conn
+                        .prepareStatement("DELETE FROM headers WHERE article_id = "
+                                + "(SELECT article_id FROM article_ids WHERE message_id = ?)");
+                this.pstmtDeleteArticle2 = conn
+                        .prepareStatement("DELETE FROM postings WHERE article_id = "
+                                + "(SELECT article_id FROM article_ids WHERE message_id = ?)");
+                this.pstmtDeleteArticle3 = conn
+                        .prepareStatement("DELETE FROM article_ids WHERE message_id = ?");
+                this.pstmtDeleteOverview = conn
+                        .prepareStatement("DELETE FROM overview WHERE article_id = "
+                                + "(SELECT article_id FROM article_ids WHERE message_id = ?)");
+
+                // Prepare statement for method expire()
+                this.pstmtExpire = conn
+                        .prepareStatement("SELECT p.article_id FROM postings p "
+                                + "INNER JOIN articles a ON p.article_id = a.article_id "
+                                + "WHERE p.group_id = ? AND a.arrival < ?");
+
+                // Prepare statement for method dropGroup()
+                this.pstmtDropGroup = conn
+                        .prepareStatement("SELECT article_id FROM postings WHERE group_id = ?");
+
+                // Prepare statements for method removePostings()
+                this.pstmtRemovePostings0 = conn
+                        .prepareStatement("DELETE FROM overview WHERE group_id = ? AND article_id = ?");
+                this.pstmtRemovePostings1 = conn
+                        .prepareStatement("DELETE FROM postings WHERE group_id = ? AND article_id = ?");
+                this.pstmtRemovePostings2 = conn
+                        .prepareStatement("DELETE FROM headers WHERE article_id = ? AND "
+                                + "NOT EXISTS (SELECT 1 FROM postings WHERE article_id = ?)");
+                this.pstmtRemovePostings3 = conn
+                        .prepareStatement("DELETE FROM article_ids WHERE article_id = ? AND "
+                                + "NOT EXISTS (SELECT 1 FROM postings WHERE article_id = ?)");
+                this.pstmtRemovePostings4 = conn
+                        .prepareStatement("DELETE FROM articles WHERE article_id = ? AND "
+                                + "NOT EXISTS (SELECT 1 FROM postings WHERE article_id = ?)");
+
+                // Prepare statement for method getArrivalCutoff()
+                this.pstmtGetArrivalCutoff = conn
+                        .prepareStatement("SELECT arrival FROM articles "
+                                + "ORDER BY arrival DESC LIMIT 1 OFFSET ?");
+
+                // Prepare statements for methods getArticle()
+                this.pstmtGetArticle0 = conn
+                        .prepareStatement("SELECT * FROM articles  WHERE article_id = "
+                                + "(SELECT article_id FROM article_ids WHERE message_id = ?)");
+                this.pstmtGetArticle1 = conn
+                        .prepareStatement("SELECT * FROM articles WHERE article_id = "
+                                + "(SELECT article_id FROM postings WHERE "
+                                + "article_index = ? AND group_id = ?)");
+
+                // Prepare statement for method getArticleHeaders()
+                this.pstmtGetArticleHeaders0 = conn
+                        .prepareStatement("SELECT header_key, header_value FROM headers WHERE article_id = ? "
+                                + "ORDER BY header_index ASC");
+
+                // Prepare statements for method getArticleHeaders(wildmat)
+                this.pstmtGetArticleHeaders1 = conn
+                        .prepareStatement("SELECT p.article_index, h.header_value FROM headers h "
+                                + "INNER JOIN postings p ON h.article_id = p.article_id "
+                                + "WHERE p.group_id      =  ? AND "
+                                + "h.header_key    =  ? AND "
+                                + "p.article_index >= ? AND "
+                                + "p.article_index <= ? "
+                                + "ORDER BY p.article_index ASC");
+                this.pstmtGetArticleHeaders2 = conn
+                        .prepareStatement("SELECT p.article_index, h.header_value FROM headers h "
+                                + "INNER JOIN postings p ON h.article_id = p.article_id "
+                                + "WHERE p.group_id      =  ? AND "
+                                + "h.header_key    =  ? AND "
+                                + "p.article_index >= ? AND "
+                                + "p.article_index <= ? AND "
+                                + "h.header_value LIKE ? ESCAPE '" + Wildmat.LIKE_ESCAPE + "' "
+                                + "ORDER BY p.article_index ASC");
+
+                this.pstmtGetArticleIDs = conn
+                        .prepareStatement("SELECT article_index FROM postings WHERE group_id = ?");
+
+                // Prepare statement for method getArticleIndex
+                this.pstmtGetArticleIndex = conn
+                        .prepareStatement("SELECT article_index FROM postings WHERE "
+                                + "article_id = (SELECT article_id FROM article_ids "
+                                + "WHERE message_id = ?) " + " AND group_id = ?");
+
+                // Prepare statements for method getArticleHeads()
+                this.pstmtGetArticleHeads = conn
+                        .prepareStatement("SELECT p.article_index, h.header_key, h.header_value, p.article_id "
+                                + "FROM postings p INNER JOIN headers h ON p.article_id = h.article_id "
+                                + "WHERE p.group_id = ? AND p.article_index >= ? AND "
+                                + "p.article_index <= ? "
+                                + "ORDER BY p.article_index ASC, h.header_index ASC");
+
+                // Prepare statement for method getOverview()
+                this.pstmtGetOverview = conn
+                        .prepareStatement("SELECT p.article_index, o.overview FROM postings p "
+                                + "LEFT OUTER JOIN overview o ON p.group_id = o.group_id "
+                                + "AND p.article_index = o.article_index "
+                                + "WHERE p.group_id = ? AND p.article_index >= ? AND "
+                                + "p.article_index <= ? ORDER BY p.article_index ASC");
+
+                // Prepare statement for method rebuildOverview()
+                this.pstmtRebuildOverview = conn
+                        .prepareStatement("DELETE FROM overview WHERE group_id = ? "
+                                + "AND article_index >= ? AND article_index <= ?");
+
+                // Prepare statement for method getGroupStatistics()
+                this.pstmtGetGroupStatistics = conn
+                        .prepareStatement("SELECT g.group_id, Count(p.article_index), "
+                                + "Min(p.article_index), Max(p.article_index), "
+                                + "COALESCE(g.watermark, 0) FROM groups g LEFT OUTER JOIN "
+                                + "postings p ON g.group_id = p.group_id "
+                                + "GROUP BY g.group_id, g.watermark");
+
+                // Prepare statement for method getLastArticleNumber()
+                this.pstmtGetLastArticleNumber = conn
+                        .prepareStatement("SELECT Max(article_index) FROM postings WHERE group_id = ?");
+
+                // Prepare statement for method getMaxArticleID()
+                this.pstmtGetMaxArticleID = conn
+                        .prepareStatement("SELECT Max(article_id) FROM articles");
+
+                // Prepare statements for method reserveArticleIDs()
+                this.pstmtIncrementSequence = conn
+                        .prepareStatement("UPDATE sequences SET next_value = next_value + ? "
+                                + "WHERE sequence_name = 'article_id'");
+                this.pstmtGetSequence = conn
+                        .prepareStatement("SELECT next_value FROM sequences "
+                                + "WHERE sequence_name = 'article_id'");
+
+                // Prepare statements for method reserveArticleIndexes()
+                this.pstmtIncrementWatermark = conn
+                        .prepareStatement("UPDATE groups SET watermark = COALESCE(watermark, 0) + ? "
+                                + "WHERE group_id = ?");
+                this.pstmtGetWatermark = conn
+                        .prepareStatement("SELECT watermark FROM groups WHERE group_id = ?");
+
+                // Prepare statement for method getOldestArticle()
+                this.pstmtGetOldestArticle = conn
+                        .prepareStatement("SELECT message_id FROM article_ids WHERE article_id = "
+                                + "(SELECT Min(article_id) FROM article_ids)");
+
+                // Prepare statement for method getFirstArticleNumber()
+                this.pstmtGetFirstArticleNumber = conn
+                        .prepareStatement("SELECT Min(article_index) FROM postings WHERE group_id = ?");
+
+                pstmtGetGroups = conn.prepareStatement("SELECT * FROM groups");
+
+                // Prepare statement for method getPostingsCount()
+                prepareGetPostingsCountStatement();
+
+                // Prepare statement for method isArticleExisting()
+                this.pstmtIsArticleExisting = conn
+                        .prepareStatement("SELECT Count(article_id) FROM article_ids WHERE message_id = ?");
+
+                // Prepare statements for method purgeGroup()
+                this.pstmtPurgeGroup0 = conn
+                        .prepareStatement("DELETE FROM peer_subscriptions WHERE group_id = ?");
+                this.pstmtPurgeGroup1 = conn
+                        .prepareStatement("DELETE FROM groups WHERE group_id = ?");
+
+            } catch (Exception ex) {
+                throw new Error("JDBC Driver not found!", ex);
             }
-            restarts = 0; // Reset error count
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected void closeResultSet(ResultSet rs) {
+        lock.lock();
+        try {
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (SQLException ex) {
+                    // Ignore exception
+                }
+                restarts = 0; // Reset error count
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -271,46 +397,48 @@ public class JDBCDatabase implements Storage {
      * @throws StorageBackendException
      */
     @Override
-    @SuppressWarnings({"InfiniteRecursion", "NestedSynchronizedStatement"})
-    public synchronized void addArticle(final Article article) throws StorageBackendException {
-        // It is necessary to synchronize this over all connections otherwise
-        // several threads would update the article_id that is database-unique.
-        // The method is synchronized here because in case of an SQL exception
+    @SuppressWarnings("InfiniteRecursion")
+    public void addArticle(final Article article) throws StorageBackendException {
+        // The instance lock is held because in case of an SQL exception
         // in an another method restartConnection() is called and recreates
-        // the conn object which is used here.
-        synchronized (JDBCDatabase.class) {
-            try {
-                this.conn.setAutoCommit(false);
-
-                int newArticleID = getMaxArticleID() + 1;
-                addArticle(article, newArticleID);
-                this.conn.commit();
-                this.conn.setAutoCommit(true);
+        // the conn object which is used here. Other instances are not
+        // blocked: the article ID comes from the ArticleIdAllocator and the
+        // article numbers are allocated with row locks of the affected groups.
+        lock.lock();
+        try {
+            int newArticleID = articleIdAllocator.next(this::reserveArticleIDs);
 
-                this.restarts = 0; // Reset error count
-            } catch (SQLException ex) {
-                try {
-                    this.conn.rollback(); // Rollback changes
-                } catch (SQLException ex2) {
-                    Log.get().log(Level.SEVERE, "Rollback of addArticle() failed: {0}", ex2);
-                }
+            beginCounterTransaction();
+            addArticle(article, newArticleID);
+            this.conn.commit();
+            endCounterTransaction();
 
-                try {
-                    this.conn.setAutoCommit(true); // and release locks
-                } catch (SQLException ex2) {
-                    Log.get().log(
-                            Level.SEVERE, "setAutoCommit(true) of addArticle() failed: {0}", ex2);
-                }
+            this.restarts = 0; // Reset error count
+        } catch (SQLException ex) {
+            try {
+                this.conn.rollback(); // Rollback changes
+            } catch (SQLException ex2) {
+                Log.get().log(Level.SEVERE, "Rollback of addArticle() failed: {0}", ex2);
+            }
 
-                restartConnection(ex);
-                addArticle(article);
+            try {
+                endCounterTransaction(); // and release locks
+            } catch (SQLException ex2) {
+                Log.get().log(
+                        Level.SEVERE, "setAutoCommit(true) of addArticle() failed: {0}", ex2);
             }
+
+            restartConnection(ex);
+            addArticle(article);
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * Adds an article to the database. Method is not synchronized as it is only
-     * called by an already synchronized method.
+     * Adds an article to the database. Method does not lock as it is only
+     * called by methods that already hold the lock and have started a
+     * transaction.
      *
      * @param article
      * @param newArticleID
@@ -323,6 +451,7 @@ public class JDBCDatabase implements Storage {
         // writes body to article table
         pstmtAddArticle1.setInt(1, newArticleID);
         pstmtAddArticle1.setBytes(2, article.getBody());
+        pstmtAddArticle1.setLong(3, System.currentTimeMillis());
         pstmtAddArticle1.execute();
 
         // Add headers
@@ -337,16 +466,23 @@ public class JDBCDatabase implements Storage {
             pstmtAddArticle2.execute();
         }
 
-        // For each newsgroup add a reference
-        List<Group> groups = article.getGroups();
+        // For each newsgroup add a reference. The groups are locked in the
+        // order of their IDs so that crossposts cannot deadlock.
+        String overview = Overview.format(article);
+        List<Group> groups = new ArrayList<>(article.getGroups());
+        groups.sort(Comparator.comparingLong(Group::getInternalID));
         for (Group group : groups) {
-            long newWatermark = getMaxArticleIndex(group.getInternalID()) + 1;
+            long newWatermark = reserveArticleIndexes(group.getInternalID(), 1);
             pstmtAddArticle3.setLong(1, group.getInternalID());
             pstmtAddArticle3.setInt(2, newArticleID);
             pstmtAddArticle3.setLong(3, newWatermark);
             pstmtAddArticle3.execute();
 
-            updateWatermark(group, newWatermark);
+            pstmtAddOverview.setLong(1, group.getInternalID());
+            pstmtAddOverview.setLong(2, newWatermark);
+            pstmtAddOverview.setInt(3, newArticleID);
+            pstmtAddOverview.setString(4, overview);
+            pstmtAddOverview.execute();
         }
 
         // Write message-id to article_ids table
@@ -355,22 +491,132 @@ public class JDBCDatabase implements Storage {
         this.pstmtAddArticle4.execute();
     }
 
+    /**
+     * Stores the given articles in a single transaction using JDBC batch
+     * updates. The article numbers of each group are reserved with a single
+     * update of its watermark. If any article cannot be stored, none of them
+     * is stored and a StorageBackendException is thrown.
+     *
+     * @param articles
+     * @throws StorageBackendException
+     */
     @Override
-    public synchronized int countArticles() throws StorageBackendException {
-        ResultSet rs = null;
-
+    public void addArticles(List<Article> articles) throws StorageBackendException {
+        lock.lock();
         try {
-            rs = this.pstmtCountArticles.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
-            } else {
-                return -1;
+            int[] articleIDs = new int[articles.size()];
+            for (int n = 0; n < articleIDs.length; n++) {
+                articleIDs[n] = articleIdAllocator.next(this::reserveArticleIDs);
             }
+
+            // Count the new postings per group; the TreeMap ensures that the
+            // groups are locked in the order of their IDs
+            Map<Long, Integer> postings = new TreeMap<>();
+            for (Article article : articles) {
+                for (Group group : article.getGroups()) {
+                    postings.merge(group.getInternalID(), 1, Integer::sum);
+                }
+            }
+
+            beginCounterTransaction();
+
+            // Reserve the article indexes; nextIndex holds the next free one
+            Map<Long, Long> nextIndex = new HashMap<>();
+            for (var entry : postings.entrySet()) {
+                long watermark = reserveArticleIndexes(entry.getKey(), entry.getValue());
+                nextIndex.put(entry.getKey(), watermark - entry.getValue() + 1);
+            }
+
+            long arrival = System.currentTimeMillis();
+            for (int n = 0; n < articleIDs.length; n++) {
+                Article article = articles.get(n);
+
+                pstmtAddArticle1.setInt(1, articleIDs[n]);
+                pstmtAddArticle1.setBytes(2, article.getBody());
+                pstmtAddArticle1.setLong(3, arrival);
+                pstmtAddArticle1.addBatch();
+
+                Enumeration<?> headers = article.getAllHeaders();
+                for (int i = 0; headers.hasMoreElements(); i++) {
+                    Header header = (Header) headers.nextElement();
+                    pstmtAddArticle2.setInt(1, articleIDs[n]);
+                    pstmtAddArticle2.setString(2, header.getName().toLowerCase());
+                    pstmtAddArticle2.setString(3,
+                            header.getValue().replaceAll("[\r\n]", ""));
+                    pstmtAddArticle2.setInt(4, i);
+                    pstmtAddArticle2.addBatch();
+                }
+
+                String overview = Overview.format(article);
+                for (Group group : article.getGroups()) {
+                    long index = nextIndex.merge(group.getInternalID(), 1L, Long::sum) - 1;
+                    pstmtAddArticle3.setLong(1, group.getInternalID());
+                    pstmtAddArticle3.setInt(2, articleIDs[n]);
+                    pstmtAddArticle3.setLong(3, index);
+                    pstmtAddArticle3.addBatch();
+
+                    pstmtAddOverview.setLong(1, group.getInternalID());
+                    pstmtAddOverview.setLong(2, index);
+                    pstmtAddOverview.setInt(3, articleIDs[n]);
+                    pstmtAddOverview.setString(4, overview);
+                    pstmtAddOverview.addBatch();
+                }
+
+                pstmtAddArticle4.setInt(1, articleIDs[n]);
+                pstmtAddArticle4.setString(2, article.getMessageID());
+                pstmtAddArticle4.addBatch();
+            }
+
+            // The articles must be inserted first as the other tables
+            // reference them
+            pstmtAddArticle1.executeBatch();
+            pstmtAddArticle2.executeBatch();
+            pstmtAddArticle3.executeBatch();
+            pstmtAddArticle4.executeBatch();
+            pstmtAddOverview.executeBatch();
+
+            this.conn.commit();
+            endCounterTransaction();
+            this.restarts = 0; // Reset error count
         } catch (SQLException ex) {
-            restartConnection(ex);
-            return countArticles();
+            try {
+                pstmtAddArticle1.clearBatch();
+                pstmtAddArticle2.clearBatch();
+                pstmtAddArticle3.clearBatch();
+                pstmtAddArticle4.clearBatch();
+                pstmtAddOverview.clearBatch();
+                this.conn.rollback();
+                endCounterTransaction();
+            } catch (SQLException ex2) {
+                Log.get().log(Level.SEVERE, "Rollback of addArticles() failed: {0}", ex2);
+            }
+            throw new StorageBackendException(ex);
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int countArticles() throws StorageBackendException {
+        lock.lock();
+        try {
+            ResultSet rs = null;
+
+            try {
+                rs = this.pstmtCountArticles.executeQuery();
+                if (rs.next()) {
+                    return rs.getInt(1);
+                } else {
+                    return -1;
+                }
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return countArticles();
+            } finally {
+                closeResultSet(rs);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -403,54 +649,200 @@ public class JDBCDatabase implements Storage {
     }
 
     @Override
-    public synchronized void delete(final String messageID) throws StorageBackendException {
+    public void delete(final String messageID) throws StorageBackendException {
+        lock.lock();
         try {
-            this.conn.setAutoCommit(false);
+            try {
+                this.conn.setAutoCommit(false);
+
+                this.pstmtDeleteOverview.setString(1, messageID);
+                this.pstmtDeleteOverview.executeUpdate();
+
+                this.pstmtDeleteArticle0.setString(1, messageID);
+                int rs = this.pstmtDeleteArticle0.executeUpdate();
+                if (rs != 1) {
+                    throw new StorageBackendException("Could not delete message "
+                            + messageID);
+                }
+
+                // We do not trust the ON DELETE CASCADE functionality to delete
+                // orphaned references...
+                this.pstmtDeleteArticle1.setString(1, messageID);
+                this.pstmtDeleteArticle1.executeUpdate();
+
+                this.pstmtDeleteArticle2.setString(1, messageID);
+                this.pstmtDeleteArticle2.executeUpdate();
+
+                this.pstmtDeleteArticle3.setString(1, messageID);
+                this.pstmtDeleteArticle3.executeUpdate();
 
-            this.pstmtDeleteArticle0.setString(1, messageID);
-            int rs = this.pstmtDeleteArticle0.executeUpdate();
-            if (rs != 1) {
-                throw new StorageBackendException("Could not delete message "
-                        + messageID);
+                this.conn.commit();
+                this.conn.setAutoCommit(true);
+            } catch (SQLException ex) {
+                throw new StorageBackendException(ex);
             }
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            // We do not trust the ON DELETE CASCADE functionality to delete
-            // orphaned references...
-            this.pstmtDeleteArticle1.setString(1, messageID);
-            this.pstmtDeleteArticle1.executeUpdate();
+    /**
+     * Removes a batch of expired articles from the given group in a single
+     * transaction. Articles without postings in other groups are deleted
+     * together with their headers.
+     *
+     * @param group
+     * @param arrivedBefore
+     * @param limit
+     * @return
+     * @throws StorageBackendException
+     */
+    @Override
+    public int expire(Group group, long arrivedBefore, int limit)
+            throws StorageBackendException {
+        lock.lock();
+        try {
+            this.pstmtExpire.setLong(1, group.getInternalID());
+            this.pstmtExpire.setLong(2, arrivedBefore);
+            this.pstmtExpire.setMaxRows(limit);
+            return removePostings(group, this.pstmtExpire);
+        } catch (SQLException ex) {
+            throw new StorageBackendException(ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int dropGroup(Group group, int limit) throws StorageBackendException {
+        lock.lock();
+        try {
+            this.pstmtDropGroup.setLong(1, group.getInternalID());
+            this.pstmtDropGroup.setMaxRows(limit);
+            return removePostings(group, this.pstmtDropGroup);
+        } catch (SQLException ex) {
+            throw new StorageBackendException(ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the postings selected by the given query from the given group
+     * in a single transaction. Articles without postings in other groups are
+     * deleted together with their headers and Message-IDs.
+     *
+     * @param group
+     * @param select Prepared query returning the article IDs to remove.
+     * @return Number of removed postings.
+     * @throws StorageBackendException
+     */
+    private int removePostings(Group group, PreparedStatement select)
+            throws SQLException, StorageBackendException {
+        List<Integer> articleIDs = new ArrayList<>();
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                articleIDs.add(rs.getInt(1));
+            }
+        }
+        if (articleIDs.isEmpty()) {
+            return 0;
+        }
 
-            this.pstmtDeleteArticle2.setString(1, messageID);
-            this.pstmtDeleteArticle2.executeUpdate();
+        try {
+            this.conn.setAutoCommit(false);
 
-            this.pstmtDeleteArticle3.setString(1, messageID);
-            this.pstmtDeleteArticle3.executeUpdate();
+            // First remove the postings of this group...
+            for (int articleID : articleIDs) {
+                for (PreparedStatement pstmt : List.of(
+                        pstmtRemovePostings0, pstmtRemovePostings1)) {
+                    pstmt.setLong(1, group.getInternalID());
+                    pstmt.setInt(2, articleID);
+                    pstmt.addBatch();
+                }
+            }
+            pstmtRemovePostings0.executeBatch();
+            pstmtRemovePostings1.executeBatch();
+
+            // ...then the articles that are no longer posted anywhere
+            for (int articleID : articleIDs) {
+                for (PreparedStatement pstmt : List.of(
+                        pstmtRemovePostings2, pstmtRemovePostings3, pstmtRemovePostings4)) {
+                    pstmt.setInt(1, articleID);
+                    pstmt.setInt(2, articleID);
+                    pstmt.addBatch();
+                }
+            }
+            pstmtRemovePostings2.executeBatch();
+            pstmtRemovePostings3.executeBatch();
+            pstmtRemovePostings4.executeBatch();
 
             this.conn.commit();
             this.conn.setAutoCommit(true);
+            return articleIDs.size();
         } catch (SQLException ex) {
+            try {
+                for (PreparedStatement pstmt : List.of(pstmtRemovePostings0, pstmtRemovePostings1,
+                        pstmtRemovePostings2, pstmtRemovePostings3, pstmtRemovePostings4)) {
+                    pstmt.clearBatch();
+                }
+                this.conn.rollback();
+                this.conn.setAutoCommit(true);
+            } catch (SQLException ex2) {
+                Log.get().log(Level.SEVERE, "Rollback of removePostings() failed: {0}", ex2);
+            }
             throw new StorageBackendException(ex);
         }
     }
 
     @Override
-    public synchronized Article getArticle(String messageID) throws StorageBackendException {
-        ResultSet rs = null;
+    public long getArrivalCutoff(long keep) throws StorageBackendException {
+        if (keep <= 0) {
+            return -1;
+        }
+
+        lock.lock();
         try {
-            pstmtGetArticle0.setString(1, messageID);
-            rs = pstmtGetArticle0.executeQuery();
+            ResultSet rs = null;
+            try {
+                this.pstmtGetArrivalCutoff.setLong(1, keep - 1);
+                rs = this.pstmtGetArrivalCutoff.executeQuery();
+                return rs.next() ? rs.getLong(1) : -1;
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getArrivalCutoff(keep);
+            } finally {
+                closeResultSet(rs);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            if (!rs.next()) {
-                return null;
-            } else {
-                byte[] body = rs.getBytes("body");
-                String headers = getArticleHeaders(rs.getInt("article_id"));
-                return StorageManager.createArticle(headers, body);
+    @Override
+    public Article getArticle(String messageID) throws StorageBackendException {
+        lock.lock();
+        try {
+            ResultSet rs = null;
+            try {
+                pstmtGetArticle0.setString(1, messageID);
+                rs = pstmtGetArticle0.executeQuery();
+
+                if (!rs.next()) {
+                    return null;
+                } else {
+                    byte[] body = rs.getBytes("body");
+                    String headers = getArticleHeaders(rs.getInt("article_id"));
+                    return StorageManager.createArticle(headers, body);
+                }
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getArticle(messageID);
+            } finally {
+                closeResultSet(rs);
             }
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getArticle(messageID);
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
@@ -463,140 +855,162 @@ public class JDBCDatabase implements Storage {
      * @throws StorageBackendException
      */
     @Override
-    public synchronized Article getArticle(long articleIndex, long gid)
+    public Article getArticle(long articleIndex, long gid)
             throws StorageBackendException {
-        ResultSet rs = null;
-
+        lock.lock();
         try {
-            this.pstmtGetArticle1.setLong(1, articleIndex);
-            this.pstmtGetArticle1.setLong(2, gid);
+            ResultSet rs = null;
+
+            try {
+                this.pstmtGetArticle1.setLong(1, articleIndex);
+                this.pstmtGetArticle1.setLong(2, gid);
 
-            rs = this.pstmtGetArticle1.executeQuery();
+                rs = this.pstmtGetArticle1.executeQuery();
 
-            if (rs.next()) {
-                byte[] body = rs.getBytes("body");
-                String headers = getArticleHeaders(rs.getInt("article_id"));
-                return StorageManager.createArticle(headers, body);
-            } else {
-                return null;
+                if (rs.next()) {
+                    byte[] body = rs.getBytes("body");
+                    String headers = getArticleHeaders(rs.getInt("article_id"));
+                    return StorageManager.createArticle(headers, body);
+                } else {
+                    return null;
+                }
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getArticle(articleIndex, gid);
+            } finally {
+                closeResultSet(rs);
             }
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getArticle(articleIndex, gid);
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
     /**
-     * Searches for fitting header values using the given regular expression.
+     * Searches for header values matching the given wildmat. Both range bounds
+     * are applied in SQL; wildmats that can be expressed with LIKE are
+     * filtered by the database as well. The matches are verified in Java, as
+     * LIKE may ignore case depending on the collation.
      *
      * @param group
      * @param start
-     * @param end
+     * @param end Last article number or -1 for no upper bound.
      * @param headerKey
-     * @param patStr
+     * @param patStr Wildmat.
      * @return
      * @throws StorageBackendException
      */
     @Override
-    public synchronized List<Pair<Long, String>> getArticleHeaders(Group group, long start,
+    public List<Pair<Long, String>> getArticleHeaders(Group group, long start,
             long end, String headerKey, String patStr)
             throws StorageBackendException, PatternSyntaxException {
-        ResultSet rs = null;
-        List<Pair<Long, String>> heads = new ArrayList<>();
-
+        lock.lock();
         try {
-            this.pstmtGetArticleHeaders1.setString(1, group.getName());
-            this.pstmtGetArticleHeaders1.setString(2, headerKey);
-            this.pstmtGetArticleHeaders1.setLong(3, start);
+            ResultSet rs = null;
+            List<Pair<Long, String>> heads = new ArrayList<>();
 
-            rs = this.pstmtGetArticleHeaders1.executeQuery();
+            Wildmat wildmat = new Wildmat(patStr);
+            String like = wildmat.toLike();
+            PreparedStatement pstmt = like != null
+                    ? this.pstmtGetArticleHeaders2 : this.pstmtGetArticleHeaders1;
 
-            // Convert the "NNTP" regex to Java regex
-            patStr = patStr.replace("*", ".*");
-            Pattern pattern = Pattern.compile(patStr);
+            try {
+                pstmt.setLong(1, group.getInternalID());
+                pstmt.setString(2, headerKey);
+                pstmt.setLong(3, start);
+                pstmt.setLong(4, end < 0 ? Long.MAX_VALUE : end);
+                if (like != null) {
+                    pstmt.setString(5, like);
+                }
 
-            while (rs.next()) {
-                Long articleIndex = rs.getLong(1);
-                if (end < 0 || articleIndex <= end) // Match start is done via
-                // SQL
-                {
+                rs = pstmt.executeQuery();
+                while (rs.next()) {
                     String headerValue = rs.getString(2);
-                    Matcher matcher = pattern.matcher(headerValue);
-                    if (matcher.matches()) {
-                        heads.add(new Pair<>(articleIndex,
-                                headerValue));
+                    if (wildmat.matches(headerValue)) {
+                        heads.add(new Pair<>(rs.getLong(1), headerValue));
                     }
                 }
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getArticleHeaders(group, start, end, headerKey, patStr);
+            } finally {
+                closeResultSet(rs);
             }
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getArticleHeaders(group, start, end, headerKey, patStr);
+
+            return heads;
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
-
-        return heads;
     }
 
-    private synchronized String getArticleHeaders(long articleID)
+    private String getArticleHeaders(long articleID)
             throws StorageBackendException {
-        ResultSet rs = null;
-
+        lock.lock();
         try {
-            this.pstmtGetArticleHeaders0.setLong(1, articleID);
-            rs = this.pstmtGetArticleHeaders0.executeQuery();
-
-            StringBuilder buf = new StringBuilder();
-            if (rs.next()) {
-                for (;;) {
-                    buf.append(rs.getString(1)); // key
-                    buf.append(": ");
-                    String foldedValue = MimeUtility.fold(0, rs.getString(2));
-                    buf.append(foldedValue); // value
-                    if (rs.next()) {
-                        buf.append("\r\n");
-                    } else {
-                        break;
+            ResultSet rs = null;
+
+            try {
+                this.pstmtGetArticleHeaders0.setLong(1, articleID);
+                rs = this.pstmtGetArticleHeaders0.executeQuery();
+
+                StringBuilder buf = new StringBuilder();
+                if (rs.next()) {
+                    for (;;) {
+                        buf.append(rs.getString(1)); // key
+                        buf.append(": ");
+                        String foldedValue = MimeUtility.fold(0, rs.getString(2));
+                        buf.append(foldedValue); // value
+                        if (rs.next()) {
+                            buf.append("\r\n");
+                        } else {
+                            break;
+                        }
                     }
                 }
-            }
 
-            return buf.toString();
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getArticleHeaders(articleID);
+                return buf.toString();
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getArticleHeaders(articleID);
+            } finally {
+                closeResultSet(rs);
+            }
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized long getArticleIndex(Article article, Group group)
+    public long getArticleIndex(Article article, Group group)
             throws StorageBackendException {
-        ResultSet rs = null;
-
+        lock.lock();
         try {
-            this.pstmtGetArticleIndex.setString(1, article.getMessageID());
-            this.pstmtGetArticleIndex.setLong(2, group.getInternalID());
+            ResultSet rs = null;
 
-            rs = this.pstmtGetArticleIndex.executeQuery();
-            if (rs.next()) {
-                return rs.getLong(1);
-            } else {
-                return -1;
+            try {
+                this.pstmtGetArticleIndex.setString(1, article.getMessageID());
+                this.pstmtGetArticleIndex.setLong(2, group.getInternalID());
+
+                rs = this.pstmtGetArticleIndex.executeQuery();
+                if (rs.next()) {
+                    return rs.getLong(1);
+                } else {
+                    return -1;
+                }
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getArticleIndex(article, group);
+            } finally {
+                closeResultSet(rs);
             }
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getArticleIndex(article, group);
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
     /**
-     * Returns a list of Long/ArticleImpl Pairs.
+     * Returns a list of Long/ArticleImpl Pairs. The headers of all articles in
+     * the range are fetched with a single query ordered by article index, so
+     * the articles are built in one pass over the result.
      *
      * @param group
      * @param first
@@ -605,85 +1019,284 @@ public class JDBCDatabase implements Storage {
      * @throws org.sonews.storage.StorageBackendException
      */
     @Override
-    public synchronized List<Pair<Long, Article>> getArticleHeads(Group group,
+    public List<Pair<Long, Article>> getArticleHeads(Group group,
             long first, long last) throws StorageBackendException {
-        ResultSet rs = null;
-
+        lock.lock();
         try {
-            this.pstmtGetArticleHeads.setLong(1, group.getInternalID());
-            this.pstmtGetArticleHeads.setLong(2, first);
-            this.pstmtGetArticleHeads.setLong(3, last);
-            rs = pstmtGetArticleHeads.executeQuery();
+            ResultSet rs = null;
 
-            List<Pair<Long, Article>> articles = new ArrayList<>(rs.getFetchSize());
+            try {
+                this.pstmtGetArticleHeads.setLong(1, group.getInternalID());
+                this.pstmtGetArticleHeads.setLong(2, first);
+                this.pstmtGetArticleHeads.setLong(3, last);
+                rs = pstmtGetArticleHeads.executeQuery();
+                return readArticleHeads(rs, null);
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getArticleHeads(group, first, last);
+            } finally {
+                closeResultSet(rs);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            while (rs.next()) {
-                long aid = rs.getLong("article_id");
-                long aidx = rs.getLong("article_index");
-                String headers = getArticleHeaders(aid);
-                articles.add(new Pair<>(aidx, StorageManager.createArticle(headers, null)));
+    /**
+     * Builds the article heads from the result of pstmtGetArticleHeads.
+     *
+     * @param rs
+     * @param articleIDs If not null, receives the internal IDs of the
+     *        returned articles.
+     * @return
+     * @throws SQLException
+     */
+    private List<Pair<Long, Article>> readArticleHeads(ResultSet rs,
+            List<Integer> articleIDs) throws SQLException {
+        List<Pair<Long, Article>> articles = new ArrayList<>();
+
+        long aidx = -1;
+        InternetHeaders headers = null;
+        while (rs.next()) {
+            if (headers == null || rs.getLong(1) != aidx) {
+                aidx = rs.getLong(1);
+                headers = new InternetHeaders();
+                Article head = StorageManager.createArticle();
+                head.setHeaders(headers);
+                head.setBody(null);
+                articles.add(new Pair<>(aidx, head));
+                if (articleIDs != null) {
+                    articleIDs.add(rs.getInt(4));
+                }
+            }
+            headers.addHeader(rs.getString(2), rs.getString(3));
+        }
+        return articles;
+    }
+
+    /**
+     * Returns the precomputed overview records of the given range. If an
+     * article of the range has no overview record, e.g. because it was
+     * stored before the overview table existed and -rebuild-overview was
+     * not run yet, the whole range is rendered from the article headers.
+     *
+     * @param group
+     * @param first
+     * @param last
+     * @return
+     * @throws StorageBackendException
+     */
+    @Override
+    public List<Pair<Long, String>> getOverview(Group group, long first,
+            long last) throws StorageBackendException {
+        lock.lock();
+        try {
+            ResultSet rs = null;
+
+            try {
+                this.pstmtGetOverview.setLong(1, group.getInternalID());
+                this.pstmtGetOverview.setLong(2, first);
+                this.pstmtGetOverview.setLong(3, last);
+                rs = this.pstmtGetOverview.executeQuery();
+
+                List<Pair<Long, String>> overviews = new ArrayList<>();
+                while (rs.next()) {
+                    String overview = rs.getString(2);
+                    if (overview == null) {
+                        // Posting without overview record
+                        return Storage.super.getOverview(group, first, last);
+                    }
+                    overviews.add(new Pair<>(rs.getLong(1), overview));
+                }
+                return overviews;
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getOverview(group, first, last);
+            } finally {
+                closeResultSet(rs);
             }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Renders the overview records of the given group again from the stored
+     * headers. The records of each chunk of REBUILD_CHUNK_SIZE article
+     * numbers are deleted and inserted in one transaction, so OVER never
+     * sees a chunk without its records while the rebuild is running.
+     *
+     * @param group
+     * @return
+     * @throws StorageBackendException
+     */
+    @Override
+    public int rebuildOverview(Group group) throws StorageBackendException {
+        lock.lock();
+        try {
+            long first = getFirstArticleNumber(group);
+            long last = getLastArticleNumber(group);
+
+            int count = 0;
+            for (long n = first; n <= last; n += REBUILD_CHUNK_SIZE) {
+                long end = Math.min(n + REBUILD_CHUNK_SIZE - 1, last);
 
-            return articles;
+                this.conn.setAutoCommit(false);
+                try {
+                    List<Integer> articleIDs = new ArrayList<>();
+                    List<Pair<Long, Article>> heads;
+                    this.pstmtGetArticleHeads.setLong(1, group.getInternalID());
+                    this.pstmtGetArticleHeads.setLong(2, n);
+                    this.pstmtGetArticleHeads.setLong(3, end);
+                    try (ResultSet rs = this.pstmtGetArticleHeads.executeQuery()) {
+                        heads = readArticleHeads(rs, articleIDs);
+                    }
+
+                    this.pstmtRebuildOverview.setLong(1, group.getInternalID());
+                    this.pstmtRebuildOverview.setLong(2, n);
+                    this.pstmtRebuildOverview.setLong(3, end);
+                    this.pstmtRebuildOverview.executeUpdate();
+
+                    for (int i = 0; i < heads.size(); i++) {
+                        pstmtAddOverview.setLong(1, group.getInternalID());
+                        pstmtAddOverview.setLong(2, heads.get(i).getA());
+                        pstmtAddOverview.setInt(3, articleIDs.get(i));
+                        pstmtAddOverview.setString(4, Overview.format(heads.get(i).getB()));
+                        pstmtAddOverview.addBatch();
+                    }
+                    if (!heads.isEmpty()) {
+                        pstmtAddOverview.executeBatch();
+                    }
+                    this.conn.commit();
+                    count += heads.size();
+                } catch (SQLException ex) {
+                    pstmtAddOverview.clearBatch();
+                    this.conn.rollback();
+                    throw ex;
+                } finally {
+                    this.conn.setAutoCommit(true);
+                }
+            }
+            return count;
         } catch (SQLException ex) {
-            restartConnection(ex);
-            return getArticleHeads(group, first, last);
+            throw new StorageBackendException(ex);
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized List<Long> getArticleNumbers(long gid)
+    public List<Long> getArticleNumbers(long gid)
             throws StorageBackendException {
-        ResultSet rs = null;
+        lock.lock();
         try {
-            List<Long> ids = new ArrayList<>();
-            this.pstmtGetArticleIDs.setLong(1, gid);
-            rs = this.pstmtGetArticleIDs.executeQuery();
-            while (rs.next()) {
-                ids.add(rs.getLong(1));
+            ResultSet rs = null;
+            try {
+                List<Long> ids = new ArrayList<>();
+                this.pstmtGetArticleIDs.setLong(1, gid);
+                rs = this.pstmtGetArticleIDs.executeQuery();
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+                return ids;
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getArticleNumbers(gid);
+            } finally {
+                closeResultSet(rs);
             }
-            return ids;
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getArticleNumbers(gid);
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
     /**
-     * Returns the largest article index (watermark) in this very group.
-     * Currently this method returns an int but this is probably not enough for
-     * VERY large (or old) groups. The SQL template was changed to BIGINT but
-     * some servers may still use INTEGER here.
+     * Increases the watermark of the given group by count and returns the new
+     * value. The article indexes from watermark - count + 1 to the returned
+     * watermark are reserved for new postings. The UPDATE locks the row of
+     * the group until the current transaction ends, so concurrent postings
+     * to the same group get distinct numbers while postings to other groups
+     * are not blocked. Must be called within a transaction.
      *
      * @param groupID
+     * @param count
      * @return
-     * @throws StorageBackendException
+     * @throws SQLException
      */
-    private synchronized int getMaxArticleIndex(long groupID) throws StorageBackendException {
-        ResultSet rs = null;
+    private long reserveArticleIndexes(long groupID, int count) throws SQLException {
+        this.pstmtIncrementWatermark.setInt(1, count);
+        this.pstmtIncrementWatermark.setLong(2, groupID);
+        if (this.pstmtIncrementWatermark.executeUpdate() != 1) {
+            throw new SQLException("No such group: " + groupID);
+        }
 
-        try {
-            this.pstmtGetMaxArticleIndex.setLong(1, groupID);
-            rs = this.pstmtGetMaxArticleIndex.executeQuery();
+        this.pstmtGetWatermark.setLong(1, groupID);
+        try (ResultSet rs = this.pstmtGetWatermark.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("No such group: " + groupID);
+            }
+            return rs.getLong(1);
+        }
+    }
 
-            int maxIndex = 0;
-            if (rs.next()) {
-                maxIndex = rs.getInt(1);
+    /**
+     * Reserves a block of article IDs for the ArticleIdAllocator by
+     * increasing the article_id sequence in a transaction of its own. Like
+     * the watermarks, the row lock of the sequence keeps concurrent
+     * reservations, even of other sonews instances, apart. This method is
+     * only called by addArticle(s) which already hold the lock.
+     *
+     * @param count
+     * @return The first ID of the block.
+     * @throws StorageBackendException
+     */
+    private int reserveArticleIDs(int count) throws StorageBackendException {
+        try {
+            beginCounterTransaction();
+            this.pstmtIncrementSequence.setInt(1, count);
+            if (this.pstmtIncrementSequence.executeUpdate() != 1) {
+                throw new SQLException("Sequence article_id is missing");
             }
 
-            return maxIndex;
+            int end;
+            try (ResultSet rs = this.pstmtGetSequence.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Sequence article_id is missing");
+                }
+                end = rs.getInt(1);
+            }
+            this.conn.commit();
+            endCounterTransaction();
+            return end - count;
         } catch (SQLException ex) {
+            try {
+                this.conn.rollback();
+                endCounterTransaction();
+            } catch (SQLException ex2) {
+                Log.get().log(Level.SEVERE, "Rollback of reserveArticleIDs() failed: {0}", ex2);
+            }
             restartConnection(ex);
-            return getMaxArticleIndex(groupID);
-        } finally {
-            closeResultSet(rs);
+            return reserveArticleIDs(count);
         }
     }
 
+    /**
+     * Starts a transaction that increments counters, i.e. watermarks or
+     * sequences. Their UPDATE ... SET x = x + n statements are serialized by
+     * row locks, so READ COMMITTED is sufficient for them and avoids the
+     * serialization failures concurrent increments would cause. All other
+     * transactions keep the SERIALIZABLE isolation of the connection.
+     */
+    private void beginCounterTransaction() throws SQLException {
+        this.conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        this.conn.setAutoCommit(false);
+    }
+
+    private void endCounterTransaction() throws SQLException {
+        this.conn.setAutoCommit(true);
+        this.conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    }
+
     @Override
     public List<Group> getGroups() throws StorageBackendException {
         ResultSet rs = null;
@@ -710,116 +1323,148 @@ public class JDBCDatabase implements Storage {
     }
 
     /**
-     * This method is only called by addArticle which is already synchronized,
-     * so we do not need a synchronization here.
+     * Loads the statistics of all groups with a single aggregate query. The
+     * high water mark is the watermark of the group, i.e. the last assigned
+     * article number, which stays above the highest stored article number
+     * when the newest articles have expired.
      *
      * @return
      * @throws StorageBackendException
      */
-    private int getMaxArticleID() throws StorageBackendException {
-        ResultSet rs = null;
-
+    @Override
+    public Map<Long, GroupStatistics.Entry> getGroupStatistics()
+            throws StorageBackendException {
+        lock.lock();
         try {
-            rs = this.pstmtGetMaxArticleID.executeQuery();
-
-            int maxIndex = 0;
-            if (rs.next()) {
-                maxIndex = rs.getInt(1);
+            ResultSet rs = null;
+            try {
+                rs = this.pstmtGetGroupStatistics.executeQuery();
+
+                Map<Long, GroupStatistics.Entry> stats = new HashMap<>();
+                while (rs.next()) {
+                    long count = rs.getLong(2);
+                    long last = Math.max(rs.getLong(4), rs.getLong(5));
+                    // The low water mark of an empty group is one above its
+                    // high water mark
+                    long first = count > 0 ? rs.getLong(3) : last + 1;
+                    stats.put(rs.getLong(1), new GroupStatistics.Entry(count, first, last));
+                }
+                return stats;
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getGroupStatistics();
+            } finally {
+                closeResultSet(rs);
             }
-
-            return maxIndex;
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getMaxArticleID();
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized int getLastArticleNumber(Group group) throws StorageBackendException {
-        ResultSet rs = null;
-
+    public int getLastArticleNumber(Group group) throws StorageBackendException {
+        lock.lock();
         try {
-            this.pstmtGetLastArticleNumber.setLong(1, group.getInternalID());
-            rs = this.pstmtGetLastArticleNumber.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
-            } else {
-                return 0;
+            ResultSet rs = null;
+
+            try {
+                this.pstmtGetLastArticleNumber.setLong(1, group.getInternalID());
+                rs = this.pstmtGetLastArticleNumber.executeQuery();
+                if (rs.next()) {
+                    return rs.getInt(1);
+                } else {
+                    return 0;
+                }
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getLastArticleNumber(group);
+            } finally {
+                closeResultSet(rs);
             }
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getLastArticleNumber(group);
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized int getFirstArticleNumber(Group group)
+    public int getFirstArticleNumber(Group group)
             throws StorageBackendException {
-        ResultSet rs = null;
+        lock.lock();
         try {
-            this.pstmtGetFirstArticleNumber.setLong(1, group.getInternalID());
-            rs = this.pstmtGetFirstArticleNumber.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
-            } else {
-                return 0;
+            ResultSet rs = null;
+            try {
+                this.pstmtGetFirstArticleNumber.setLong(1, group.getInternalID());
+                rs = this.pstmtGetFirstArticleNumber.executeQuery();
+                if (rs.next()) {
+                    return rs.getInt(1);
+                } else {
+                    return 0;
+                }
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getFirstArticleNumber(group);
+            } finally {
+                closeResultSet(rs);
             }
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getFirstArticleNumber(group);
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized String getOldestArticle() throws StorageBackendException {
-        ResultSet rs = null;
-
+    public String getOldestArticle() throws StorageBackendException {
+        lock.lock();
         try {
-            rs = this.pstmtGetOldestArticle.executeQuery();
-            if (rs.next()) {
-                return rs.getString(1);
-            } else {
-                return null;
+            ResultSet rs = null;
+
+            try {
+                rs = this.pstmtGetOldestArticle.executeQuery();
+                if (rs.next()) {
+                    return rs.getString(1);
+                } else {
+                    return null;
+                }
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getOldestArticle();
+            } finally {
+                closeResultSet(rs);
             }
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getOldestArticle();
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized int getPostingsCount(String groupname)
+    public int getPostingsCount(String groupname)
             throws StorageBackendException {
-        ResultSet rs = null;
-
+        lock.lock();
         try {
-            Group group = Group.get(groupname);
-            if (group == null) {
-                Log.get().log(Level.WARNING, "Group {0} does not exist!", groupname);
-                return 0;
-            }
+            ResultSet rs = null;
 
-            this.pstmtGetPostingsCount.setLong(1, group.getInternalID());
-            rs = this.pstmtGetPostingsCount.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
-            } else {
-                Log.get().warning("Count on postings return nothing!");
-                return 0;
+            try {
+                Group group = Group.get(groupname);
+                if (group == null) {
+                    Log.get().log(Level.WARNING, "Group {0} does not exist!", groupname);
+                    return 0;
+                }
+
+                this.pstmtGetPostingsCount.setLong(1, group.getInternalID());
+                rs = this.pstmtGetPostingsCount.executeQuery();
+                if (rs.next()) {
+                    return rs.getInt(1);
+                } else {
+                    Log.get().warning("Count on postings return nothing!");
+                    return 0;
+                }
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return getPostingsCount(groupname);
+            } finally {
+                closeResultSet(rs);
             }
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return getPostingsCount(groupname);
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
@@ -832,19 +1477,24 @@ public class JDBCDatabase implements Storage {
      * @throws StorageBackendException
      */
     @Override
-    public synchronized boolean isArticleExisting(String messageID)
+    public boolean isArticleExisting(String messageID)
             throws StorageBackendException {
-        ResultSet rs = null;
-
+        lock.lock();
         try {
-            this.pstmtIsArticleExisting.setString(1, messageID);
-            rs = this.pstmtIsArticleExisting.executeQuery();
-            return rs.next() && rs.getInt(1) == 1;
-        } catch (SQLException ex) {
-            restartConnection(ex);
-            return isArticleExisting(messageID);
+            ResultSet rs = null;
+
+            try {
+                this.pstmtIsArticleExisting.setString(1, messageID);
+                rs = this.pstmtIsArticleExisting.executeQuery();
+                return rs.next() && rs.getInt(1) == 1;
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                return isArticleExisting(messageID);
+            } finally {
+                closeResultSet(rs);
+            }
         } finally {
-            closeResultSet(rs);
+            lock.unlock();
         }
     }
 
@@ -852,113 +1502,155 @@ public class JDBCDatabase implements Storage {
      * Closes the JDBCDatabase connection.
      */
     @PreDestroy
-    public synchronized void close() {
+    public void close() {
+        lock.lock();
         try {
-            if (this.conn != null) {
-                this.conn.close();
+            try {
+                if (this.conn != null) {
+                    this.conn.close();
+                }
+            } catch (SQLException ex) {
+                log.warning(ex.getLocalizedMessage());
             }
-        } catch (SQLException ex) {
-            log.warning(ex.getLocalizedMessage());
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized void purgeGroup(Group group) throws StorageBackendException {
+    public void purgeGroup(Group group) throws StorageBackendException {
+        lock.lock();
         try {
-            this.pstmtPurgeGroup0.setLong(1, group.getInternalID());
-            this.pstmtPurgeGroup0.executeUpdate();
+            try {
+                this.pstmtPurgeGroup0.setLong(1, group.getInternalID());
+                this.pstmtPurgeGroup0.executeUpdate();
+
+                this.pstmtPurgeGroup1.setLong(1, group.getInternalID());
+                this.pstmtPurgeGroup1.executeUpdate();
+            } catch (SQLException ex) {
+                restartConnection(ex);
+                purgeGroup(group);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            this.pstmtPurgeGroup1.setLong(1, group.getInternalID());
-            this.pstmtPurgeGroup1.executeUpdate();
+    /**
+     * Checks if the connection to the database server is still usable.
+     *
+     * @param timeout Timeout in seconds.
+     * @return
+     */
+    public boolean isValid(int timeout) {
+        lock.lock();
+        try {
+            return this.conn != null && this.conn.isValid(timeout);
         } catch (SQLException ex) {
-            restartConnection(ex);
-            purgeGroup(group);
+            return false;
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Reopens the connection to the database server, e.g. after isValid()
+     * has failed.
+     *
+     * @throws StorageBackendException
+     */
+    public void reconnect() throws StorageBackendException {
+        restartConnection(new SQLException("Connection is not valid"));
+    }
+
     /**
      * Restart the JDBC connection to the Database server.
      *
      * @param cause
      * @throws StorageBackendException
      */
-    protected synchronized void restartConnection(SQLException cause)
+    protected void restartConnection(SQLException cause)
             throws StorageBackendException {
-        Log.get().log(Level.SEVERE, Thread.currentThread()
-                + ": Database connection was closed (restart "
-                + restarts + ").", cause);
+        lock.lock();
+        try {
+            Log.get().log(Level.SEVERE, Thread.currentThread()
+                    + ": Database connection was closed (restart "
+                    + restarts + ").", cause);
 
-        if (++restarts >= MAX_RESTARTS) {
-            // Throw the exception upwards
-            throw new StorageBackendException(cause);
-        }
+            if (++restarts >= MAX_RESTARTS) {
+                // Throw the exception upwards
+                throw new StorageBackendException(cause);
+            }
 
-        try {
-            Thread.sleep(1500L * restarts);
-        } catch (InterruptedException ex) {
-            // Sleep was interrupted. Ignore the InterruptedException.
-        }
+            try {
+                Thread.sleep(1500L * restarts);
+            } catch (InterruptedException ex) {
+                // Sleep was interrupted. Ignore the InterruptedException.
+            }
 
-        // Try to properly close the old database connection
-        try {
-            if (this.conn != null) {
-                this.conn.close();
+            // Try to properly close the old database connection
+            try {
+                if (this.conn != null) {
+                    this.conn.close();
+                }
+            } catch (SQLException ex) {
+                Log.get().warning(ex.getMessage());
             }
-        } catch (SQLException ex) {
-            Log.get().warning(ex.getMessage());
-        }
 
-        this.conn = null;
+            this.conn = null;
 
-        try {
-            // Try to reinitialize database connection
-            arise();
-        } catch (SQLException ex) {
-            Log.get().warning(ex.getMessage());
-            restartConnection(ex);
+            try {
+                // Try to reinitialize database connection
+                arise();
+            } catch (SQLException ex) {
+                Log.get().warning(ex.getMessage());
+                restartConnection(ex);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized boolean update(Article article) throws StorageBackendException {
-        ResultSet rs = null;
+    public boolean update(Article article) throws StorageBackendException {
+        lock.lock();
         try {
-            // Retrieve internal article_id
-            this.pstmtGetArticle0.setString(1, article.getMessageID());
-            rs = this.pstmtGetArticle0.executeQuery();
-            int articleID = rs.getInt("article_id");
+            ResultSet rs = null;
+            try {
+                // Retrieve internal article_id
+                this.pstmtGetArticle0.setString(1, article.getMessageID());
+                rs = this.pstmtGetArticle0.executeQuery();
+                int articleID = rs.getInt("article_id");
 
-            delete(article.getMessageID());
+                delete(article.getMessageID());
 
-            this.conn.setAutoCommit(false);
-            addArticle(article, articleID);
-            this.conn.commit();
-            this.conn.setAutoCommit(true);
-            return true;
-        } catch (SQLException ex) {
-            try {
-                this.conn.rollback();
-            } catch (SQLException ex2) {
-                Log.get().log(Level.SEVERE, "Rollback failed: {0}", ex2.getMessage());
+                beginCounterTransaction();
+                addArticle(article, articleID);
+                this.conn.commit();
+                endCounterTransaction();
+                return true;
+            } catch (SQLException ex) {
+                try {
+                    this.conn.rollback();
+                } catch (SQLException ex2) {
+                    Log.get().log(Level.SEVERE, "Rollback failed: {0}", ex2.getMessage());
+                }
+                restartConnection(ex);
+                return update(article);
             }
-            restartConnection(ex);
-            return update(article);
-        }
-    }
-
-    protected void updateWatermark(Group group, long watermark) throws StorageBackendException {
-        try {
-            pstmtUpdateWatermark.setLong(1, watermark);
-            pstmtUpdateWatermark.setInt(2, (int) group.getInternalID());
-            pstmtUpdateWatermark.execute();
-        } catch (SQLException ex) {
-            restartConnection(ex);
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized boolean authenticateUser(String username, char[] password)
+    public boolean authenticateUser(String username, char[] password)
             throws StorageBackendException {
-        throw new StorageBackendException("Not supported yet.");
+        lock.lock();
+        try {
+            throw new StorageBackendException("Not supported yet.");
+        } finally {
+            lock.unlock();
+        }
     }
 }
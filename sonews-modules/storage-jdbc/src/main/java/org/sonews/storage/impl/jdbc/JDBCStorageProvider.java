@@ -18,7 +18,10 @@
 
 package org.sonews.storage.impl.jdbc;
 
-import java.util.Arrays;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import org.sonews.config.Config;
@@ -31,7 +34,9 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 /**
- * StorageProvider for JDBC databases.
+ * StorageProvider for JDBC databases. The JDBCDatabase instances, one per
+ * configured connection, are kept in a JDBCConnectionPool. Pending schema
+ * migrations are applied before the instances are created.
  * @author Christian Lins
  * @since sonews/1.0
  */
@@ -44,24 +49,42 @@ public class JDBCStorageProvider implements StorageProvider {
     @Autowired
     private Log log;
 
-    private JDBCDatabase[] databases;
+    @Autowired
+    private SchemaMigrator migrator;
 
-    private int last = 0;
+    private JDBCConnectionPool pool;
 
+    /**
+     * Applies the pending schema migrations and creates the connection pool.
+     * A failed migration stops the startup, as the JDBCDatabase instances
+     * would not work with the old schema.
+     *
+     * @throws StorageBackendException
+     */
     @PostConstruct
-    public void initialize() {
+    public void initialize() throws StorageBackendException {
+        try {
+            migrator.migrate();
+        } catch (ClassNotFoundException | SQLException ex) {
+            log.log(Level.SEVERE, "Could not update the database schema: {0}", ex);
+            throw new StorageBackendException(ex);
+        }
+
         int numConns = Config.inst().get(Config.STORAGE_CONNECTIONS, 4);
-        databases = new JDBCDatabase[numConns];
+        List<JDBCDatabase> databases = new ArrayList<>(numConns);
         for (int i = 0; i < numConns; i++) {
-            databases[i] = context.getBean(JDBCDatabase.class);
+            databases.add(context.getBean(JDBCDatabase.class));
         }
+        pool = new JDBCConnectionPool(databases,
+                Config.inst().get(Config.STORAGE_CHECKOUT_TIMEOUT, 5000));
     }
 
     @PreDestroy
     @Override
     public void dispose() {
-        if (databases != null) {
-            Arrays.asList(databases).forEach(JDBCDatabase::close);
+        if (pool != null) {
+            log.log(Level.INFO, "Database connection pool: {0}", pool);
+            pool.getDatabases().forEach(JDBCDatabase::close);
         }
     }
 
@@ -73,9 +96,7 @@ public class JDBCStorageProvider implements StorageProvider {
     }
 
     @Override
-    public synchronized Storage storage(Thread thread) throws StorageBackendException {
-        var database = databases[last];
-        last = (last + 1) % databases.length;
-        return database;
+    public Storage storage(Thread thread) throws StorageBackendException {
+        return pool.storage();
     }
 }
@@ -0,0 +1,281 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage.impl.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import org.sonews.config.Config;
+import org.sonews.util.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Brings the database schema up to date at startup. The database is expected
+ * to be created from one of the util/database_*.sql templates; the
+ * migrations listed in MIGRATIONS are applied in order on top of it and the
+ * applied versions are recorded in the schema_version table, so that every
+ * migration runs exactly once per database.
+ *
+ * Migrations must only be appended to the list, never changed or reordered
+ * after they have been released. They must also be re-runnable: some
+ * databases (e.g. MySQL) commit every DDL statement implicitly, so a
+ * migration that fails halfway cannot be rolled back and runs again on the
+ * next start. Check for tables, columns and rows before creating them.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+@Component
+class SchemaMigrator {
+
+    /**
+     * A single migration step.
+     */
+    @FunctionalInterface
+    interface Step {
+
+        void apply(SchemaMigrator migrator, Connection conn) throws SQLException;
+    }
+
+    record Migration(int version, String description, Step step) {
+    }
+
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Overview table", (m, conn) -> {
+                if (!m.tableExists(conn, "overview")) {
+                    m.execute(conn, "CREATE TABLE overview ("
+                            + "group_id INTEGER NOT NULL, "
+                            + "article_index BIGINT NOT NULL, "
+                            + "article_id INTEGER, "
+                            + "overview TEXT, "
+                            + "PRIMARY KEY(group_id, article_index))");
+                    m.log.warning("Overview table created, run sonews with "
+                            + "-rebuild-overview to fill it; until then OVER "
+                            + "reads the article headers");
+                }
+            }),
+            new Migration(2, "Indexes for article lookups", (m, conn) -> {
+                // Range queries of OVER, LISTGROUP, ARTICLE <n>
+                m.createIndex(conn, "idx_postings_group_index",
+                        "postings", "group_id", "article_index");
+                // Deleting an article and looking up its numbers
+                m.createIndex(conn, "idx_postings_article", "postings", "article_id");
+                // Message-ID lookups of ARTICLE, STAT, IHAVE
+                m.createIndex(conn, "idx_article_ids_message", "article_ids", "message_id");
+                // HDR/XPAT on a single header
+                m.createIndex(conn, "idx_headers_key", "headers", "header_key", "article_id");
+                // Deleting the overview records of an article
+                m.createIndex(conn, "idx_overview_article", "overview", "article_id");
+            }),
+            new Migration(3, "Arrival time of articles", (m, conn) -> {
+                if (!m.columnExists(conn, "articles", "arrival")) {
+                    m.execute(conn, "ALTER TABLE articles ADD COLUMN arrival BIGINT");
+                }
+                // The real arrival times are unknown, so the existing
+                // articles expire one retention period after the upgrade
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE articles SET arrival = ? WHERE arrival IS NULL")) {
+                    pstmt.setLong(1, System.currentTimeMillis());
+                    pstmt.executeUpdate();
+                }
+                m.createIndex(conn, "idx_articles_arrival", "articles", "arrival");
+            }),
+            new Migration(4, "Sequence of article IDs", (m, conn) -> {
+                if (!m.tableExists(conn, "sequences")) {
+                    m.execute(conn, "CREATE TABLE sequences ("
+                            + "sequence_name VARCHAR(64) NOT NULL, "
+                            + "next_value INTEGER NOT NULL, "
+                            + "PRIMARY KEY(sequence_name))");
+                }
+                // Continue behind the largest article ID in use
+                try (Statement stmt = conn.createStatement();
+                        ResultSet rs = stmt.executeQuery("SELECT Count(*) FROM sequences "
+                                + "WHERE sequence_name = 'article_id'")) {
+                    if (rs.next() && rs.getInt(1) > 0) {
+                        return;
+                    }
+                }
+                m.execute(conn, "INSERT INTO sequences (sequence_name, next_value) "
+                        + "SELECT 'article_id', COALESCE(Max(article_id), 0) + 1 FROM articles");
+            }));
+
+    @Autowired
+    private Log log;
+
+    /**
+     * Opens a separate connection and applies all pending migrations. This
+     * must be done before the JDBCDatabase instances prepare their
+     * statements.
+     *
+     * @throws ClassNotFoundException
+     * @throws SQLException
+     */
+    void migrate() throws ClassNotFoundException, SQLException {
+        Class.forName(Config.inst().get(Config.LEVEL_FILE,
+                Config.STORAGE_DBMSDRIVER, "java.lang.Object"));
+        try (Connection conn = DriverManager.getConnection(
+                Config.inst().get(Config.LEVEL_FILE,
+                        Config.STORAGE_DATABASE, "<not specified>"),
+                Config.inst().get(Config.LEVEL_FILE, Config.STORAGE_USER,
+                        "root"),
+                Config.inst().get(Config.LEVEL_FILE,
+                        Config.STORAGE_PASSWORD, ""))) {
+            migrate(conn);
+        }
+    }
+
+    void migrate(Connection conn) throws SQLException {
+        if (!tableExists(conn, "schema_version")) {
+            execute(conn, "CREATE TABLE schema_version ("
+                    + "version INTEGER NOT NULL, "
+                    + "description VARCHAR(255), "
+                    + "applied TIMESTAMP, "
+                    + "PRIMARY KEY(version))");
+        }
+
+        int current = 0;
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT Max(version) FROM schema_version")) {
+            if (rs.next()) {
+                current = rs.getInt(1);
+            }
+        }
+
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version() <= current) {
+                continue;
+            }
+
+            log.log(Level.INFO, "Applying schema migration {0}: {1}",
+                    new Object[] { migration.version(), migration.description() });
+            conn.setAutoCommit(false);
+            try {
+                migration.step().apply(this, conn);
+                conn.commit();
+
+                // Record the version right after the step, so that a failure
+                // of a later migration does not apply this one again
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO schema_version (version, description, applied) "
+                        + "VALUES (?, ?, ?)")) {
+                    pstmt.setInt(1, migration.version());
+                    pstmt.setString(2, migration.description());
+                    pstmt.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    /**
+     * Converts an unquoted identifier to the case the database stores it in,
+     * as required by the DatabaseMetaData methods.
+     */
+    private String identifier(DatabaseMetaData meta, String name) throws SQLException {
+        if (meta.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase(Locale.ROOT);
+        } else if (meta.storesLowerCaseIdentifiers()) {
+            return name.toLowerCase(Locale.ROOT);
+        }
+        return name;
+    }
+
+    private boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getTables(conn.getCatalog(), null,
+                identifier(meta, table), new String[] { "TABLE" })) {
+            return rs.next();
+        }
+    }
+
+    private boolean columnExists(Connection conn, String table, String column)
+            throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null,
+                identifier(meta, table), identifier(meta, column))) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Creates the given index unless the table already has an index (e.g.
+     * of a primary key or unique constraint) starting with the given
+     * columns.
+     */
+    private void createIndex(Connection conn, String name, String table,
+            String... columns) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+
+        // Collect the columns of all existing indexes in key order
+        Map<String, Map<Short, String>> indexes = new TreeMap<>();
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null,
+                identifier(meta, table), false, false)) {
+            while (rs.next()) {
+                String index = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (index != null && column != null) {
+                    indexes.computeIfAbsent(index, k -> new TreeMap<>())
+                            .put(rs.getShort("ORDINAL_POSITION"), column);
+                }
+            }
+        }
+
+        for (Map<Short, String> indexColumns : indexes.values()) {
+            List<String> existing = new ArrayList<>(indexColumns.values());
+            if (existing.size() >= columns.length) {
+                boolean covered = true;
+                for (int n = 0; n < columns.length; n++) {
+                    covered &= existing.get(n).equalsIgnoreCase(columns[n]);
+                }
+                if (covered) {
+                    log.log(Level.INFO, "Index {0} not created, {1} is already indexed",
+                            new Object[] { name, table + existing });
+                    return;
+                }
+            }
+        }
+
+        execute(conn, "CREATE INDEX " + name + " ON " + table
+                + " (" + String.join(", ", columns) + ")");
+    }
+}
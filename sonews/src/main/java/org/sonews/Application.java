@@ -27,14 +27,17 @@ import java.util.Enumeration;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.sonews.config.Config;
+import org.sonews.daemon.ArticleIngest;
 import org.sonews.daemon.Connections;
 import org.sonews.daemon.DaemonThread;
 import org.sonews.daemon.NNTPDaemonRunnable;
 import org.sonews.feed.FeedManager;
 import org.sonews.storage.Group;
+import org.sonews.storage.GroupStatistics;
 import org.sonews.storage.StorageBackendException;
 import org.sonews.storage.StorageManager;
 import org.sonews.storage.StorageProvider;
+import org.sonews.util.PinningMonitor;
 import org.sonews.util.Purger;
 import org.sonews.util.io.Resource;
 import org.springframework.context.ApplicationContext;
@@ -65,6 +68,8 @@ public class Application {
 
         boolean feed = false; // Enable feeding?
         boolean purgerEnabled = false; // Enable message purging?
+        boolean debugPinning = false; // Report pinned virtual threads?
+        boolean rebuildOverview = false; // Rebuild overview and exit?
         int port = -1;
 
         for (int n = 0; n < args.length; n++) {
@@ -78,6 +83,9 @@ public class Application {
                     // FIXME: Additional context files
                     n++;
                 }
+                case "-debug-pinning" -> {
+                    debugPinning = true;
+                }
                 case "-dumpjdbcdriver" -> {
                     System.out.println("Available JDBC drivers:");
                     Enumeration<Driver> drvs = DriverManager.getDrivers();
@@ -103,6 +111,9 @@ public class Application {
                 case "-purger" ->  {
                     purgerEnabled = true;
                 }
+                case "-rebuild-overview" -> {
+                    rebuildOverview = true;
+                }
                 case "-v", "-version" ->  {
                     // Simply return as the version info is already printed above
                     return;
@@ -138,6 +149,15 @@ public class Application {
             }
         });
 
+        if (rebuildOverview) {
+            for (Group group : Group.getAll()) {
+                int count = StorageManager.current().rebuildOverview(group);
+                System.out.println("Rebuilt overview of " + group.getName()
+                        + ": " + count + " articles");
+            }
+            return;
+        }
+
         // Add shutdown hook
         var shutdownHook = context.getBean(ShutdownHook.class);
         Runtime.getRuntime().addShutdownHook(new Thread(shutdownHook));
@@ -157,6 +177,12 @@ public class Application {
         // Start Connections purger thread...
         new DaemonThread(Connections.getInstance()).start();
 
+        // Start the thread storing posted articles
+        new DaemonThread(ArticleIngest.getInstance()).start();
+
+        // Load and maintain the group statistics for GROUP and LIST
+        new DaemonThread(GroupStatistics.getInstance()).start();
+
         // Start feeds
         if (feed) {
             FeedManager.startFeeding();
@@ -167,6 +193,10 @@ public class Application {
             new DaemonThread(purger).start();
         }
 
+        if (debugPinning) {
+            new DaemonThread(new PinningMonitor()).start();
+        }
+
         // Wait for main thread to exit (setDaemon(false))
         daemon.join();
     }
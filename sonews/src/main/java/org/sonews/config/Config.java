@@ -49,9 +49,31 @@ public class Config extends AbstractConfig {
     public static final String FEED_NEWSPERRUN = "sonews.feed.newsperrun";
     public static final String FEED_PULLINTERVAL = "sonews.feed.pullinterval";
 
+    /**
+     * Key constant. Maximum number of connections used to pull from one peer
+     * at the same time; default: 2
+     */
+    public static final String FEED_PULLCONNECTIONS = "sonews.feed.pullconnections";
+
+    /**
+     * Key constant. Directory of the outgoing feed journals; default: "feed"
+     */
+    public static final String FEED_JOURNALDIR = "sonews.feed.journaldir";
+
+    /**
+     * Key constant. Maximum time in seconds between two attempts to push to
+     * an unreachable peer; default: 600
+     */
+    public static final String FEED_RETRYMAX = "sonews.feed.retrymax";
+
     public static final String HOSTNAME = "sonews.hostname";
     public static final String PORT = "sonews.port";
     public static final String TIMEOUT = "sonews.timeout";
+    /**
+     * Key constant. Value is the timeout in seconds for clients that stall
+     * in the middle of a multi-line command, e.g. POST; default: 60
+     */
+    public static final String TIMEOUT_COMMAND = "sonews.timeout.command";
     public static final String LOGLEVEL = "sonews.loglevel";
 
     public static final String MLPOLL_DELETEUNKNOWN = "sonews.mlpoll.deleteunknown";
@@ -68,8 +90,66 @@ public class Config extends AbstractConfig {
     public static final String MLSEND_USER = "sonews.mlsend.user";
     public static final String MLSEND_AUTH = "sonews.mlsend.auth";
 
+    /**
+     * Key constant. Value is the maximum number of direct I/O buffers kept
+     * by the BufferPool of the SelectorNNTPDaemon; default: 1024
+     */
     public static final String PERF_MAX_CACHED_BUFFERS = "sonews.perf.maxcachedbuffers";
 
+    /**
+     * Key constant. Value is the maximum number of concurrent client
+     * connections; default: 10000
+     */
+    public static final String PERF_MAX_CONNECTIONS = "sonews.perf.maxconnections";
+
+    /**
+     * Key constant. Value is the maximum number of concurrent connections
+     * from a single client address; default: 64
+     */
+    public static final String PERF_MAX_CONNECTIONS_PER_CLIENT = "sonews.perf.maxconnectionsperclient";
+
+    /**
+     * Key constant. Value is the heap in MB that must be left free to accept
+     * a new connection; default: 32
+     */
+    public static final String PERF_MIN_FREE_MEMORY = "sonews.perf.minfreememory";
+
+    /**
+     * Key constant. Value is the lower bound of the adaptive limit of
+     * concurrently processed commands; default: 4
+     */
+    public static final String PERF_MIN_COMMANDS = "sonews.perf.mincommands";
+
+    /**
+     * Key constant. Value is the upper bound of the adaptive limit of
+     * concurrently processed commands; default: 1000
+     */
+    public static final String PERF_MAX_COMMANDS = "sonews.perf.maxcommands";
+
+    /**
+     * Key constant. Value is the time in milliseconds a command waits for
+     * processing if the command limit is reached; default: 500
+     */
+    public static final String PERF_COMMAND_QUEUE_TIMEOUT = "sonews.perf.commandqueuetimeout";
+
+    /**
+     * Key constant. Value is the maximum number of posted articles that are
+     * stored in one transaction; default: 64
+     */
+    public static final String INGEST_BATCHSIZE = "sonews.ingest.batchsize";
+
+    /**
+     * Key constant. Value is the time in milliseconds posted articles are
+     * collected before they are stored; default: 5
+     */
+    public static final String INGEST_WINDOW = "sonews.ingest.window";
+
+    /**
+     * Key constant. Interval in seconds in which the cached group statistics
+     * are reloaded from the storage; default: 60
+     */
+    public static final String GROUPSTATS_INTERVAL = "sonews.groupstats.interval";
+
     /**
      * Key constant. If value is "true" every I/O is written to logfile (which
      * is a lot!)
@@ -82,6 +162,12 @@ public class Config extends AbstractConfig {
     /** Max. allowed articles in storage (used by Purger) */
     public static final String STORAGE_ARTICLE_MAXNUM = "sonews.storage.article.maxnum";
 
+    /**
+     * Key constant. Number of articles the Purger deletes per transaction;
+     * default: 500
+     */
+    public static final String PURGER_BATCHSIZE = "sonews.purger.batchsize";
+
     /** Key constant. Value is classname of the JDBC driver */
     public static final String STORAGE_DBMSDRIVER = "sonews.storage.dbmsdriver";
     /** Key constant. Value is JDBC connect String to the database. */
@@ -94,6 +180,11 @@ public class Config extends AbstractConfig {
     public static final String STORAGE_PORT     = "sonews.storage.port";
     public static final String STORAGE_PROVIDER = "sonews.storage.provider";
     public static final String STORAGE_CONNECTIONS = "sonews.storage.connections";
+    /**
+     * Key constant. Value is the time in milliseconds to wait for an idle
+     * database connection; default: 5000
+     */
+    public static final String STORAGE_CHECKOUT_TIMEOUT = "sonews.storage.checkouttimeout";
 
     /**
      * Key constant. Value is the name of the host which is allowed to use the
@@ -107,7 +198,8 @@ public class Config extends AbstractConfig {
             FEED_NEWSPERRUN, FEED_PULLINTERVAL, HOSTNAME, MLPOLL_DELETEUNKNOWN,
             MLPOLL_HOST, MLPOLL_PASSWORD, MLPOLL_USER, MLSEND_ADDRESS,
             MLSEND_HOST, MLSEND_PASSWORD, MLSEND_PORT, MLSEND_RW_FROM,
-            MLSEND_RW_SENDER, MLSEND_USER, PORT, TIMEOUT, XDAEMON_HOST };
+            MLSEND_RW_SENDER, MLSEND_USER, PORT, TIMEOUT, TIMEOUT_COMMAND,
+            XDAEMON_HOST };
     private static final Config instance = new Config();
 
     public static Config inst() {
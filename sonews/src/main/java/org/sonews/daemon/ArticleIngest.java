@@ -0,0 +1,169 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.sonews.config.Config;
+import org.sonews.storage.Article;
+import org.sonews.storage.StorageBackendException;
+import org.sonews.storage.StorageManager;
+import org.sonews.util.Log;
+
+/**
+ * Daemon thread storing posted articles in batches (group commit). Articles
+ * that arrive within a short window are written with a single call to
+ * Storage.addArticles(), so that concurrent postings share one transaction
+ * instead of each paying for its own commit. The posting threads block in
+ * add() until the batch holding their article has been committed.
+ *
+ * If a batch fails, its articles are stored one by one, so that only the
+ * articles that really cannot be stored are reported as failed.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+public final class ArticleIngest extends DaemonRunner {
+
+    private record Pending(Article article, CompletableFuture<Void> done) {
+    }
+
+    private static final ArticleIngest instance = new ArticleIngest();
+
+    /**
+     * @return Active ArticleIngest instance.
+     */
+    public static ArticleIngest getInstance() {
+        return instance;
+    }
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    private ArticleIngest() {
+    }
+
+    /**
+     * Stores the given article and returns when it has been committed. If
+     * the ingest thread is not running the article is stored directly.
+     *
+     * @param article
+     * @throws StorageBackendException
+     */
+    public void add(Article article) throws StorageBackendException {
+        if (daemon == null || !daemon.isRunning()) {
+            StorageManager.current().addArticle(article);
+            return;
+        }
+
+        var pending = new Pending(article, new CompletableFuture<>());
+        queue.add(pending);
+        try {
+            pending.done().get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof StorageBackendException sbe) {
+                throw sbe;
+            }
+            throw new StorageBackendException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new StorageBackendException(ex);
+        }
+    }
+
+    /**
+     * Collects the queued articles into batches bounded by
+     * sonews.ingest.batchsize and sonews.ingest.window and commits them.
+     */
+    @Override
+    public void run() {
+        this.daemon.setName("ArticleIngest");
+
+        List<Pending> batch = new ArrayList<>();
+        while (daemon.isRunning()) {
+            int batchSize = Config.inst().get(Config.INGEST_BATCHSIZE, 64);
+            long window = TimeUnit.MILLISECONDS.toNanos(
+                    Config.inst().get(Config.INGEST_WINDOW, 5));
+
+            try {
+                Pending first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + window;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                Log.get().log(Level.WARNING, "ArticleIngest interrupted: {0}", ex.getMessage());
+            }
+
+            commit(batch);
+            batch.clear();
+        }
+
+        // Store what is left after shutdown was requested
+        queue.drainTo(batch);
+        commit(batch);
+    }
+
+    private void commit(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            StorageManager.current().addArticles(
+                    batch.stream().map(Pending::article).toList());
+            batch.forEach(p -> p.done().complete(null));
+            return;
+        } catch (StorageBackendException | RuntimeException ex) {
+            if (batch.size() == 1) {
+                batch.get(0).done().completeExceptionally(ex);
+                return;
+            }
+            Log.get().log(Level.WARNING,
+                    "Batch of {0} articles failed, storing them one by one: {1}",
+                    new Object[] { batch.size(), ex });
+        }
+
+        for (Pending p : batch) {
+            try {
+                StorageManager.current().addArticle(p.article());
+                p.done().complete(null);
+            } catch (StorageBackendException | RuntimeException ex) {
+                p.done().completeExceptionally(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.sonews.config.Config;
+import org.sonews.storage.StorageManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the number of commands that are processed concurrently. The limit
+ * adapts to the latency of the storage backend using a gradient algorithm:
+ * a short-term average of the storage call latency is compared to a
+ * long-term average. While both are about equal the limit grows slowly;
+ * when the short-term latency rises, i.e. requests start to queue up in the
+ * backend, the limit shrinks proportionally. Thus the number of in-flight
+ * commands stays near the capacity of the backend.
+ *
+ * Commands exceeding the limit wait a short time for a permit and are
+ * rejected if none becomes available.
+ *
+ * Latency samples are reported by every storage call, so sample() does not
+ * take the lock: the samples are summed up in LongAdders and folded into the
+ * averages at most once per update interval by whichever thread gets the
+ * lock with tryLock().
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+@Component
+public class CommandLimiter {
+
+    /** Number of updates of the long-term latency average */
+    private static final double LONG_WINDOW = 600;
+    /** Number of updates of the short-term latency average */
+    private static final double SHORT_WINDOW = 10;
+    /** Minimum time between two updates of the limit */
+    private static final long UPDATE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+    /** Latency increase that is tolerated before the limit shrinks */
+    private static final double TOLERANCE = 1.5;
+    /** Weight of a new limit estimate */
+    private static final double SMOOTHING = 0.2;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+
+    /** Latency samples not yet folded into the averages */
+    private final LongAdder sampleSum = new LongAdder();
+    private final LongAdder sampleCount = new LongAdder();
+    private final long updateInterval;
+    private volatile long lastUpdate = System.nanoTime();
+
+    private int minLimit;
+    private int maxLimit;
+    private long queueTimeout;
+
+    private double limit;
+    private int inFlight = 0;
+    private double longRtt = 0;
+    private double shortRtt = 0;
+    private long rejected = 0;
+
+    public CommandLimiter() {
+        this(4, 1000, 500);
+    }
+
+    /**
+     * @param minLimit Lower bound of the limit.
+     * @param maxLimit Upper bound of the limit.
+     * @param queueTimeout Time in milliseconds a command waits for a permit.
+     */
+    public CommandLimiter(int minLimit, int maxLimit, long queueTimeout) {
+        this(minLimit, maxLimit, queueTimeout, UPDATE_INTERVAL);
+    }
+
+    /**
+     * @param minLimit Lower bound of the limit.
+     * @param maxLimit Upper bound of the limit.
+     * @param queueTimeout Time in milliseconds a command waits for a permit.
+     * @param updateInterval Minimum time in nanoseconds between two updates
+     *        of the limit.
+     */
+    CommandLimiter(int minLimit, int maxLimit, long queueTimeout, long updateInterval) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueTimeout = queueTimeout;
+        this.updateInterval = updateInterval;
+        this.limit = Math.min(maxLimit, Math.max(minLimit, 20));
+    }
+
+    @PostConstruct
+    protected void init() {
+        this.minLimit = Config.inst().get(Config.PERF_MIN_COMMANDS, minLimit);
+        this.maxLimit = Config.inst().get(Config.PERF_MAX_COMMANDS, maxLimit);
+        this.queueTimeout = Config.inst().get(Config.PERF_COMMAND_QUEUE_TIMEOUT, (int) queueTimeout);
+        this.limit = Math.min(maxLimit, Math.max(minLimit, limit));
+        StorageManager.setLatencyListener(this::sample);
+    }
+
+    @PreDestroy
+    protected void destroy() {
+        StorageManager.setLatencyListener(null);
+    }
+
+    /**
+     * Acquires a permit for processing a command. Waits for at most the
+     * configured queue timeout if the limit is reached.
+     *
+     * @return true if a permit was acquired and must be released with
+     *         release(), false if the command should be rejected.
+     */
+    public boolean acquire() {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+            while (inFlight >= (int) limit) {
+                if (nanos <= 0) {
+                    rejected++;
+                    return false;
+                }
+                nanos = permitAvailable.awaitNanos(nanos);
+            }
+            inFlight++;
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a permit that was acquired with acquire().
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a latency sample of the storage backend. Adapts the limit if the
+     * update interval has passed and no other thread is doing so.
+     *
+     * @param rttNanos
+     */
+    public void sample(long rttNanos) {
+        sampleSum.add(rttNanos);
+        sampleCount.increment();
+
+        if (System.nanoTime() - lastUpdate < updateInterval || !lock.tryLock()) {
+            return;
+        }
+        try {
+            long count = sampleCount.sumThenReset();
+            long sum = sampleSum.sumThenReset();
+            lastUpdate = System.nanoTime();
+            if (count > 0) {
+                update((double) sum / count);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Folds the mean latency of the samples since the last update into the
+     * averages and adapts the limit. Must be called with the lock held.
+     */
+    private void update(double rttNanos) {
+        if (longRtt == 0) {
+            longRtt = rttNanos;
+            shortRtt = rttNanos;
+        } else {
+            longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+            shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+        }
+
+        // If the latency has dropped well below the long-term average,
+        // e.g. after an overload, let the long-term average catch up
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        if (newLimit > limit && inFlight < limit / 2) {
+            return; // Limit is not the bottleneck, so do not grow it
+        }
+
+        double oldLimit = limit;
+        limit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit));
+        if ((int) limit > (int) oldLimit) {
+            permitAvailable.signalAll();
+        }
+    }
+
+    /**
+     * @return Current limit of concurrently processed commands.
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of commands that were rejected so far.
+     */
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of commands currently being processed.
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -20,11 +20,9 @@ package org.sonews.daemon;
 
 import java.io.IOException;
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import org.sonews.config.Config;
@@ -35,11 +33,24 @@ import org.sonews.util.Log;
  * periodically if there are stale/timed out connections and removes and purges
  * them properly.
  *
+ * All connections are kept in concurrent collections, so registering and
+ * removing a connection does not block other threads. Timeouts are tracked
+ * with a TimingWheel: a connection is only looked at when its deadline is
+ * reached, instead of scanning all connections. Activity of a connection
+ * merely updates its last activity timestamp; if a connection was active
+ * since it was scheduled, it is scheduled again for its new deadline.
+ *
  * @author Christian Lins
  * @since sonews/0.5.0
  */
 public final class Connections extends DaemonRunner {
 
+    /** Resolution of the connection timeouts in milliseconds */
+    private static final long TICK_MILLIS = 1000;
+
+    /** Number of slots of the timing wheel, i.e. ticks per revolution */
+    private static final int WHEEL_SLOTS = 512;
+
     private static final Connections instance = new Connections();
 
     /**
@@ -49,24 +60,43 @@ public final class Connections extends DaemonRunner {
         return Connections.instance;
     }
 
-    private final List<NNTPConnection> connections = new ArrayList<>();
+    private final Set<NNTPConnection> connections = ConcurrentHashMap.newKeySet();
     private final Map<SocketChannel, NNTPConnection> connByChannel
-            = new HashMap<>();
+            = new ConcurrentHashMap<>();
+    private final TimingWheel<NNTPConnection> timeouts = new TimingWheel<>(
+            WHEEL_SLOTS, TICK_MILLIS, System.currentTimeMillis());
 
     private Connections() {
     }
 
     /**
-     * Adds the given NNTPConnection to the Connections management.
+     * Adds the given NNTPConnection to the Connections management. All
+     * NNTPConnection implementations must register here to be subject to
+     * the connection timeouts.
      *
      * @param conn
-     * @see org.sonews.daemon.SynchronousNNTPConnection
+     * @see org.sonews.daemon.io.SelectorNNTPConnection
+     * @see org.sonews.daemon.io.ThreadedNNTPConnection
      */
     public void add(final NNTPConnection conn) {
-        synchronized (this.connections) {
-            this.connections.add(conn);
+        this.connections.add(conn);
+        if (conn.getSocketChannel() != null) {
             this.connByChannel.put(conn.getSocketChannel(), conn);
-            assert connections.size() == connByChannel.size();
+        }
+        timeouts.schedule(conn, conn.getLastActivity() + getMinTimeout());
+    }
+
+    /**
+     * Removes the given NNTPConnection from the Connections management, e.g.
+     * because it was closed by the client. A pending timeout of the
+     * connection is discarded when it is due.
+     *
+     * @param conn
+     */
+    public void remove(final NNTPConnection conn) {
+        this.connections.remove(conn);
+        if (conn.getSocketChannel() != null) {
+            this.connByChannel.remove(conn.getSocketChannel());
         }
     }
 
@@ -76,65 +106,95 @@ public final class Connections extends DaemonRunner {
      *         SocketChannel.
      */
     public NNTPConnection get(final SocketChannel channel) {
-        synchronized (this.connections) {
-            return this.connByChannel.get(channel);
+        return this.connByChannel.get(channel);
+    }
+
+    /**
+     * @return Number of currently registered connections.
+     */
+    public int count() {
+        return this.connections.size();
+    }
+
+    /**
+     * Returns the idle timeout that applies to the given connection in its
+     * current state. Connections in the middle of a multi-line command, e.g.
+     * POST, use sonews.timeout.command, all others sonews.timeout.
+     *
+     * @param conn
+     * @return Timeout in milliseconds.
+     */
+    private long getTimeout(NNTPConnection conn) {
+        if (conn.isCommandPending()) {
+            return 1000L * Config.inst().get(Config.TIMEOUT_COMMAND, 60);
+        } else {
+            return 1000L * Config.inst().get(Config.TIMEOUT, 180);
+        }
+    }
+
+    private long getMinTimeout() {
+        return 1000L * Math.min(Config.inst().get(Config.TIMEOUT, 180),
+                Config.inst().get(Config.TIMEOUT_COMMAND, 60));
+    }
+
+    /**
+     * Called by the timing wheel when the scheduled deadline of a connection
+     * is reached.
+     *
+     * @param conn
+     */
+    private void check(NNTPConnection conn) {
+        if (!connections.contains(conn)) {
+            return; // Connection was already closed
+        }
+
+        long now = System.currentTimeMillis();
+        long deadline = conn.getLastActivity() + getTimeout(conn);
+        if (deadline > now) {
+            // The connection was active in the meantime. The state of the
+            // connection may change until the deadline, so check again
+            // after the minimum timeout at the latest.
+            timeouts.schedule(conn, Math.min(deadline, now + getMinTimeout()));
+            return;
+        }
+
+        // A connection timeout has occurred so purge the connection
+        remove(conn);
+
+        // Close the channel first; implicitely cancels all selectionkeys
+        // and discards output that the client does not read anyway
+        SocketChannel channel = conn.getSocketChannel();
+        if (channel != null) {
+            try {
+                var remoteAddress = channel.getRemoteAddress();
+                channel.close();
+                Log.get().log(Level.INFO, "Disconnected: {0} (timeout)",
+                        remoteAddress);
+            } catch (IOException ex) {
+                Log.get().log(Level.WARNING, "Connections.run(): {0}", ex);
+            }
+        }
+
+        try {
+            conn.close();
+        } catch (IOException ex) {
+            Log.get().info("Exception while closing the connection");
         }
     }
 
     /**
-     * Run loops. Checks periodically for timed out connections and purged them
-     * from the lists.
+     * Run loops. Advances the timing wheel every tick and purges the timed
+     * out connections.
      */
     @Override
     public void run() {
         this.daemon.setName("Connections");
-        
+
         while (daemon.isRunning()) {
-            int timeoutMillis = 1000 * Config.inst().get(Config.TIMEOUT, 180);
-
-            synchronized (this.connections) {
-                final ListIterator<NNTPConnection> iter = this.connections
-                        .listIterator();
-                NNTPConnection conn;
-
-                while (iter.hasNext()) {
-                    conn = iter.next();
-                    if ((System.currentTimeMillis() - conn.getLastActivity()) > timeoutMillis) {
-                        // A connection timeout has occurred so purge the
-                        // connection
-                        iter.remove();
-
-                        // Close and remove the channel
-                        SocketChannel channel = conn.getSocketChannel();
-                        connByChannel.remove(channel);
-
-                        try {
-                            assert channel != null;
-
-                            var remoteAddress = channel.getRemoteAddress();
-
-                            // Close the channel; implicitely cancels all
-                            // selectionkeys
-                            channel.close();
-                            Log.get().log(
-                                    Level.INFO,
-                                    "Disconnected: {0} (timeout)",
-                                    remoteAddress);
-                        } catch (IOException ex) {
-                            Log.get().log(Level.WARNING, "Connections.run(): {0}", ex);
-                        }
-
-                        try {
-                            conn.close();
-                        } catch (IOException ex) {
-                            Log.get().info("Exception while closing the connection");
-                        }
-                    }
-                }
-            }
+            timeouts.advance(System.currentTimeMillis(), this::check);
 
             try {
-                Thread.sleep(10000); // Sleep ten seconds
+                Thread.sleep(TICK_MILLIS);
             } catch (InterruptedException ex) {
                 Log.get().log(Level.WARNING, "Connections Thread was interrupted: {0}", ex.getMessage());
             }
@@ -23,12 +23,13 @@ import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import org.sonews.auth.User;
 import org.sonews.storage.Article;
+import org.sonews.storage.BodyRegion;
 import org.sonews.storage.Group;
 
 /**
  * Interface for an NNTP connection. This interface is implemented by
- * SynchronousNNTPConnection and AsynchronousNNTPConnection which use similar
- * but not compatible NIO APIs.
+ * ThreadedNNTPConnection, which uses blocking sockets, and by
+ * SelectorNNTPConnection, which uses non-blocking NIO channels.
  *
  * @author Christian Lins
  */
@@ -37,8 +38,24 @@ public interface NNTPConnection {
     public static final String NEWLINE = "\r\n"; // RFC defines this as newline
     public static final String MESSAGE_ID_PATTERN = "<[^>]+>";
 
+    /**
+     * Starts a (multi-line) response. All lines written until the matching
+     * call of endResponse() are buffered and sent in large chunks; the buffer
+     * is flushed automatically when it is full. Calls may be nested, the
+     * response is flushed when the outermost response ends.
+     */
+    void beginResponse();
+
     void close() throws IOException;
 
+    /**
+     * Ends a response started with beginResponse() and flushes all buffered
+     * lines to the client if this was the outermost response.
+     *
+     * @throws IOException
+     */
+    void endResponse() throws IOException;
+
     Article getCurrentArticle();
 
     Charset getCurrentCharset();
@@ -51,11 +68,20 @@ public interface NNTPConnection {
 
     //ByteBuffer getOutputBuffer();
 
-    @Deprecated
+    /**
+     * @return The SocketChannel of this connection or null if the connection
+     *         is not backed by a channel (e.g. ThreadedNNTPConnection).
+     */
     SocketChannel getSocketChannel();
 
     User getUser();
 
+    /**
+     * @return true if the connection is in the middle of a multi-line command,
+     *         e.g. POST, and waits for further lines of it.
+     */
+    boolean isCommandPending();
+
     void println(byte[] line) throws IOException;
 
     void println(CharSequence line);
@@ -68,6 +94,16 @@ public interface NNTPConnection {
 
     void setUser(User user);
 
+    /**
+     * Writes the given region, e.g. an article body, to the client without
+     * decoding it. The region is closed afterwards. Like println() the data
+     * is buffered if a response is active.
+     *
+     * @param region
+     * @throws IOException
+     */
+    void write(BodyRegion region) throws IOException;
+
     //boolean tryReadLock();
 
     //void unlockReadLock();
@@ -0,0 +1,101 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel. Items are scheduled into one of a fixed number of
+ * slots according to their deadline; a slot covers one tick. Scheduling is
+ * O(1) and may be done by any thread, while advance() must only be called by
+ * a single thread. Deadlines further away than one revolution of the wheel
+ * are kept in their slot until the matching revolution.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+class TimingWheel<T> {
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+
+    private final Queue<Entry<T>>[] slots;
+    private final long tickMillis;
+    private volatile long currentTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimingWheel(int numSlots, long tickMillis, long startMillis) {
+        this.slots = new Queue[numSlots];
+        for (int n = 0; n < numSlots; n++) {
+            slots[n] = new ConcurrentLinkedQueue<>();
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules the given item. Deadlines in the past expire with the next
+     * tick.
+     *
+     * @param item
+     * @param deadlineMillis
+     */
+    void schedule(T item, long deadlineMillis) {
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        slots[(int) (tick % slots.length)].offer(new Entry<>(item, tick));
+    }
+
+    /**
+     * Advances the wheel to the given time and passes all items whose
+     * deadline has been reached to the given consumer. The consumer may
+     * schedule items again.
+     *
+     * @param nowMillis
+     * @param expired
+     */
+    void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        List<Entry<T>> drained = new ArrayList<>();
+        while (currentTick < targetTick) {
+            long tick = currentTick + 1;
+            Queue<Entry<T>> slot = slots[(int) (tick % slots.length)];
+
+            // Drain the slot first, so that entries scheduled again by the
+            // consumer are not processed twice
+            Entry<T> entry;
+            while ((entry = slot.poll()) != null) {
+                drained.add(entry);
+            }
+            currentTick = tick;
+
+            for (Entry<T> e : drained) {
+                if (e.deadlineTick() <= tick) {
+                    expired.accept(e.item());
+                } else {
+                    slot.offer(e); // Due in a later revolution
+                }
+            }
+            drained.clear();
+        }
+    }
+}
@@ -56,7 +56,10 @@ public class CapabilitiesCommand implements Command {
                                                                      // RFC3977
             "READER", // Server implements commands for reading
             "POST", // Server implements POST command
-            "OVER" // Server implements OVER command
+            "IHAVE", // Server implements IHAVE command
+            "STREAMING", // Server implements MODE STREAM, CHECK and TAKETHIS
+            "OVER", // Server implements OVER command
+            "XPIPELINING" // Server processes pipelined commands in order
     };
 
     @Override
@@ -0,0 +1,83 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sonews.daemon.command;
+
+import java.io.IOException;
+import org.sonews.daemon.NNTPConnection;
+import org.sonews.feed.PeerIngest;
+import org.sonews.storage.StorageBackendException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Implementation of the CHECK command of the streaming extension
+ * (RFC 4644). Tells the peer whether we want an article before it is sent
+ * with TAKETHIS.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+@Component
+public class CheckCommand implements Command {
+
+    @Override
+    public String[] getSupportedCommandStrings() {
+        return new String[] { "CHECK" };
+    }
+
+    @Override
+    public boolean hasFinished() {
+        return true;
+    }
+
+    @Override
+    public String impliedCapability() {
+        return "STREAMING";
+    }
+
+    @Override
+    public boolean isStateful() {
+        return false;
+    }
+
+    /**
+     * Asks the peer to offer the article again later.
+     */
+    @Override
+    public String busyResponse(String line) {
+        String[] command = line.trim().split("\\s+");
+        if (command.length != 2) {
+            return "501 syntax error";
+        }
+        return "431 " + command[1];
+    }
+
+    @Override
+    public void processLine(NNTPConnection conn, final String line, byte[] raw)
+            throws IOException, StorageBackendException {
+        String[] command = line.trim().split("\\s+");
+        if (command.length != 2 || !command[1].matches(NNTPConnection.MESSAGE_ID_PATTERN)) {
+            conn.println("501 syntax error");
+        } else if (PeerIngest.isExisting(command[1])) {
+            conn.println("438 " + command[1]);
+        } else if (PeerIngest.isInFlight(command[1])) {
+            conn.println("431 " + command[1]);
+        } else {
+            conn.println("238 " + command[1]);
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.sonews.daemon.command;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.sonews.daemon.NNTPConnection;
 import org.sonews.storage.StorageBackendException;
@@ -44,8 +45,49 @@ public interface Command {
 
     boolean isStateful();
 
+    /**
+     * @return true if the command must not be rejected when the server is
+     *         busy, e.g. because the client sends its data without waiting
+     *         for a response.
+     */
+    default boolean isAlwaysAdmitted() {
+        return false;
+    }
+
+    /**
+     * Returns the response sent instead of processing the command when the
+     * server is busy.
+     *
+     * @param line First line of the command.
+     * @return Response line without terminator.
+     */
+    default String busyResponse(String line) {
+        return "403 Server busy, please retry later";
+    }
+
     String[] getSupportedCommandStrings();
 
     void processLine(NNTPConnection conn, String line, byte[] rawLine)
             throws IOException, StorageBackendException;
+
+    /**
+     * Processes a line that is given as a slice of the connection's receive
+     * buffer, without the line terminator. The buffer content is only valid
+     * during this call. The default implementation decodes the line using the
+     * current charset of the connection and calls
+     * processLine(NNTPConnection, String, byte[]); commands that receive
+     * large amounts of data should override this method to avoid the decoding.
+     *
+     * @param conn
+     * @param buf
+     * @param off
+     * @param len
+     * @throws IOException
+     * @throws StorageBackendException
+     */
+    default void processLine(NNTPConnection conn, byte[] buf, int off, int len)
+            throws IOException, StorageBackendException {
+        processLine(conn, new String(buf, off, len, conn.getCurrentCharset()),
+                Arrays.copyOfRange(buf, off, off + len));
+    }
 }
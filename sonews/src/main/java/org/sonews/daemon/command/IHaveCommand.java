@@ -0,0 +1,114 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sonews.daemon.command;
+
+import java.io.IOException;
+import org.sonews.daemon.NNTPConnection;
+import org.sonews.feed.PeerIngest;
+import org.sonews.storage.StorageBackendException;
+import org.sonews.util.io.ArticleBuffer;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * Implementation of the IHAVE command (RFC 3977 section 6.3.2) used by peers
+ * to offer articles. The article is only transferred if it is not already
+ * stored or being transferred by another peer.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+@Component
+@Scope("prototype")
+public class IHaveCommand implements Command {
+
+    private String messageID;
+    private ArticleBuffer buffer;
+    private boolean finished = false;
+
+    @Override
+    public String[] getSupportedCommandStrings() {
+        return new String[] { "IHAVE" };
+    }
+
+    @Override
+    public boolean hasFinished() {
+        return finished;
+    }
+
+    @Override
+    public String impliedCapability() {
+        return "IHAVE";
+    }
+
+    @Override
+    public boolean isStateful() {
+        return true;
+    }
+
+    @Override
+    public String busyResponse(String line) {
+        return "436 server busy; try again later";
+    }
+
+    @Override
+    public void processLine(NNTPConnection conn, String line, byte[] raw)
+            throws IOException, StorageBackendException {
+        if (raw == null) {
+            raw = line.getBytes(conn.getCurrentCharset());
+        }
+        processLine(conn, raw, 0, raw.length);
+    }
+
+    @Override
+    public void processLine(NNTPConnection conn, byte[] buf, int off, int len)
+            throws IOException, StorageBackendException {
+        if (buffer == null) {
+            String[] command = new String(buf, off, len, conn.getCurrentCharset())
+                    .trim().split("\\s+");
+            if (command.length != 2 || !command[1].matches(NNTPConnection.MESSAGE_ID_PATTERN)) {
+                conn.println("501 syntax error");
+                finished = true;
+            } else if (PeerIngest.isExisting(command[1])) {
+                conn.println("435 article not wanted");
+                finished = true;
+            } else if (!PeerIngest.claim(command[1])) {
+                conn.println("436 article is being transferred; try again later");
+                finished = true;
+            } else {
+                messageID = command[1];
+                buffer = new ArticleBuffer();
+                conn.println("335 send article to be transferred. End with <CR-LF>.<CR-LF>");
+            }
+            return;
+        }
+
+        if (buffer.add(buf, off, len)) {
+            finished = true;
+            try {
+                switch (PeerIngest.store(messageID, buffer)) {
+                    case STORED -> conn.println("235 article transferred OK");
+                    case REJECTED -> conn.println("437 article rejected; do not try again");
+                    case FAILED -> conn.println("436 transfer failed; try again later");
+                }
+            } finally {
+                PeerIngest.release(messageID);
+            }
+        }
+    }
+}
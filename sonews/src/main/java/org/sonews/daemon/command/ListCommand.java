@@ -64,38 +64,43 @@ public class ListCommand implements Command {
     @Override
     public void processLine(NNTPConnection conn, final String line, byte[] raw)
             throws IOException, StorageBackendException {
-        final String[] command = line.split(" ");
+        conn.beginResponse();
+        try {
+            final String[] command = line.split(" ");
 
-        if (command.length >= 2) {
-            if (command[1].equalsIgnoreCase("OVERVIEW.FMT")) {
-                conn.println("215 information follows");
-                conn.println("Subject:\nFrom:\nDate:\nMessage-ID:\nReferences:\nBytes:\nLines:\nXref");
-                conn.println(".");
-            } else if (command[1].equalsIgnoreCase("NEWSGROUPS")) {
-                conn.println("215 information follows");
-                final List<Group> list = Group.getAll();
-                for (Group g : list) {
-                    conn.println(g.getName() + "\t" + "-");
+            if (command.length >= 2) {
+                if (command[1].equalsIgnoreCase("OVERVIEW.FMT")) {
+                    conn.println("215 information follows");
+                    conn.println("Subject:\nFrom:\nDate:\nMessage-ID:\nReferences:\nBytes:\nLines:\nXref");
+                    conn.println(".");
+                } else if (command[1].equalsIgnoreCase("NEWSGROUPS")) {
+                    conn.println("215 information follows");
+                    final List<Group> list = Group.getAll();
+                    for (Group g : list) {
+                        conn.println(g.getName() + "\t" + "-");
+                    }
+                    conn.println(".");
+                } else if (command[1].equalsIgnoreCase("SUBSCRIPTIONS")) {
+                    conn.println("215 information follows");
+                    conn.println(".");
+                } else if (command[1].equalsIgnoreCase("EXTENSIONS")) {
+                    conn.println("202 Supported NNTP extensions.");
+                    conn.println("LISTGROUP");
+                    conn.println("XDAEMON");
+                    conn.println("XPAT");
+                    conn.println(".");
+                } else if (command[1].equalsIgnoreCase("ACTIVE")) {
+                    String pattern = command.length == 2 ? null : command[2]
+                            .replace("*", "\\w*");
+                    printGroupInfo(conn, pattern);
+                } else {
+                    conn.println("500 unknown argument to LIST command");
                 }
-                conn.println(".");
-            } else if (command[1].equalsIgnoreCase("SUBSCRIPTIONS")) {
-                conn.println("215 information follows");
-                conn.println(".");
-            } else if (command[1].equalsIgnoreCase("EXTENSIONS")) {
-                conn.println("202 Supported NNTP extensions.");
-                conn.println("LISTGROUP");
-                conn.println("XDAEMON");
-                conn.println("XPAT");
-                conn.println(".");
-            } else if (command[1].equalsIgnoreCase("ACTIVE")) {
-                String pattern = command.length == 2 ? null : command[2]
-                        .replace("*", "\\w*");
-                printGroupInfo(conn, pattern);
             } else {
-                conn.println("500 unknown argument to LIST command");
+                printGroupInfo(conn, null);
             }
-        } else {
-            printGroupInfo(conn, null);
+        } finally {
+            conn.endResponse();
         }
     }
 
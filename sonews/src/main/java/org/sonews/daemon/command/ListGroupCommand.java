@@ -60,28 +60,33 @@ public class ListGroupCommand implements Command {
     @Override
     public void processLine(NNTPConnection conn, final String commandName,
             byte[] raw) throws IOException, StorageBackendException {
-        final String[] command = commandName.split(" ");
+        conn.beginResponse();
+        try {
+            final String[] command = commandName.split(" ");
 
-        Group group;
-        if (command.length >= 2) {
-            group = Group.get(command[1]);
-        } else {
-            group = conn.getCurrentGroup();
-        }
+            Group group;
+            if (command.length >= 2) {
+                group = Group.get(command[1]);
+            } else {
+                group = conn.getCurrentGroup();
+            }
 
-        if (group == null) {
-            conn.println("412 no group selected; use GROUP <group> command");
-            return;
-        }
+            if (group == null) {
+                conn.println("412 no group selected; use GROUP <group> command");
+                return;
+            }
 
-        List<Long> ids = group.getArticleNumbers();
-        conn.println("211 " + ids.size() + " " + group.getFirstArticleNumber()
-                + " " + group.getLastArticleNumber()
-                + " list of article numbers follow");
-        for (long id : ids) {
-            // One index number per line
-            conn.println(Long.toString(id));
+            List<Long> ids = group.getArticleNumbers();
+            conn.println("211 " + ids.size() + " " + group.getFirstArticleNumber()
+                    + " " + group.getLastArticleNumber()
+                    + " list of article numbers follow");
+            for (long id : ids) {
+                // One index number per line
+                conn.println(Long.toString(id));
+            }
+            conn.println(".");
+        } finally {
+            conn.endResponse();
         }
-        conn.println(".");
     }
 }
@@ -26,8 +26,9 @@ import org.sonews.storage.StorageBackendException;
 import org.springframework.stereotype.Component;
 
 /**
- * Class handling the MODE READER command. This command actually does nothing
- * but returning a success status code.
+ * Class handling the MODE READER and MODE STREAM commands. These commands
+ * actually do nothing but returning a success status code, as the reader and
+ * the streaming commands are always available.
  *
  * @author Christian Lins
  * @since sonews/0.5.0
@@ -60,6 +61,8 @@ public class ModeReaderCommand implements Command {
             throws IOException, StorageBackendException {
         if (line.equalsIgnoreCase("MODE READER")) {
             conn.println("200 hello you can post");
+        } else if (line.equalsIgnoreCase("MODE STREAM")) {
+            conn.println("203 streaming permitted");
         } else {
             conn.println("500 I do not know this mode command");
         }
@@ -21,11 +21,13 @@ package org.sonews.daemon.command;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.logging.Level;
 import javax.mail.MessagingException;
 import javax.mail.internet.InternetHeaders;
 import org.sonews.config.Config;
+import org.sonews.daemon.ArticleIngest;
 import org.sonews.daemon.NNTPConnection;
 import org.sonews.feed.FeedManager;
 import org.sonews.storage.Article;
@@ -49,6 +51,8 @@ import org.springframework.stereotype.Component;
 @Scope("prototype")
 public class PostCommand implements Command {
 
+    private static final byte[] NEWLINE = NNTPConnection.NEWLINE.getBytes(StandardCharsets.US_ASCII);
+
     private Article article;
     private int lineCount = 0;
     private long bodySize = 0;
@@ -59,7 +63,7 @@ public class PostCommand implements Command {
     
     private PostState state = PostState.WaitForLineOne;
     private final ByteArrayOutputStream bufBody = new ByteArrayOutputStream();
-    private final StringBuilder strHead = new StringBuilder();
+    private final ByteArrayOutputStream bufHead = new ByteArrayOutputStream();
 
     @Override
     public String[] getSupportedCommandStrings() {
@@ -82,7 +86,7 @@ public class PostCommand implements Command {
     }
 
     /**
-     * Process the given line String. line.trim() was called by NNTPConnection.
+     * Process the given line String.
      *
      * @param conn
      * @param line
@@ -91,12 +95,37 @@ public class PostCommand implements Command {
      * @throws org.sonews.storage.StorageBackendException
      */
     @Override
-    // TODO: Refactor this method to reduce complexity!
     public void processLine(NNTPConnection conn, String line, byte[] raw)
             throws IOException, StorageBackendException
     {
+        if (raw == null) {
+            raw = line.getBytes(conn.getCurrentCharset());
+        }
+        processLine(conn, raw, 0, raw.length);
+    }
+
+    /**
+     * Process the given line. Header and body lines are copied into the
+     * article buffers as they are received, only the command line itself
+     * is decoded.
+     *
+     * @param conn
+     * @param buf
+     * @param off
+     * @param len
+     * @throws java.io.IOException
+     * @throws org.sonews.storage.StorageBackendException
+     */
+    @Override
+    // TODO: Refactor this method to reduce complexity!
+    public void processLine(NNTPConnection conn, byte[] buf, int off, int len)
+            throws IOException, StorageBackendException
+    {
+        boolean isDot = len == 1 && buf[off] == '.';
+
         switch (state) {
             case WaitForLineOne ->  {
+                String line = new String(buf, off, len, conn.getCurrentCharset());
                 if (line.equalsIgnoreCase("POST")) {
                     this.article = StorageManager.createArticle();
                     state = PostState.ReadingHeaders;
@@ -107,18 +136,18 @@ public class PostCommand implements Command {
                 }
             }
             case ReadingHeaders ->  {
-                strHead.append(line);
-                strHead.append(NNTPConnection.NEWLINE);
+                bufHead.write(buf, off, len);
+                bufHead.write(NEWLINE);
 
-                if ("".equals(line) || ".".equals(line)) {
+                if (len == 0 || isDot) {
                     // we finally met the blank line
                     // separating headers from body
 
                     try {
                         // Parse the header using the InternetHeader class from
                         // JavaMail API
-                        headers = new InternetHeaders(new ByteArrayInputStream(
-                                strHead.toString().trim().getBytes(conn.getCurrentCharset())));
+                        headers = new InternetHeaders(
+                                new ByteArrayInputStream(bufHead.toByteArray()));
 
                         // add the header entries for the article
                         article.setHeaders(headers);
@@ -135,7 +164,7 @@ public class PostCommand implements Command {
                     state = PostState.ReadingBody;
 
                     // WTF: do we need articles without bodies?
-                    if (".".equals(line)) {
+                    if (isDot) {
                         // Post an article without body
                         postArticle(conn, article);
                         state = PostState.Finished;
@@ -143,7 +172,7 @@ public class PostCommand implements Command {
                 }
             }
             case ReadingBody ->  {
-                if (".".equals(line)) {
+                if (isDot) {
                     // Set some headers needed for Over command
                     headers.setHeader(Headers.LINES, Integer.toString(lineCount));
                     headers.setHeader(Headers.BYTES, Long.toString(bodySize));
@@ -158,12 +187,12 @@ public class PostCommand implements Command {
                     postArticle(conn, article);
                     state = PostState.Finished;
                 } else {
-                    bodySize += line.length() + 1;
+                    bodySize += len + 1;
                     lineCount++;
 
                     // Add line to body buffer
-                    bufBody.write(raw, 0, raw.length);
-                    bufBody.write(NNTPConnection.NEWLINE.getBytes("UTF-8"));
+                    bufBody.write(buf, off, len);
+                    bufBody.write(NEWLINE);
 
                     if (bodySize > maxBodySize) {
                         conn.println("500 article is too long");
@@ -254,7 +283,7 @@ public class PostCommand implements Command {
                         } else {
                             // Store in database
                             if (!StorageManager.current().isArticleExisting(article.getMessageID())) {
-                                StorageManager.current().addArticle(article);
+                                ArticleIngest.getInstance().add(article);
                             } else {
                                 Log.get().info("Article exists and is not stored.");
                             }
@@ -0,0 +1,128 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.sonews.daemon.command;
+
+import java.io.IOException;
+import org.sonews.daemon.NNTPConnection;
+import org.sonews.feed.PeerIngest;
+import org.sonews.storage.StorageBackendException;
+import org.sonews.util.io.ArticleBuffer;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * Implementation of the TAKETHIS command of the streaming extension
+ * (RFC 4644). The peer sends the article right after the command without
+ * waiting for a response, usually after it was accepted by CHECK, and may
+ * pipeline further commands; the responses are sent in order.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+@Component
+@Scope("prototype")
+public class TakeThisCommand implements Command {
+
+    private String messageID;
+    private boolean valid;
+    private boolean claimed;
+    private ArticleBuffer buffer;
+    private boolean finished = false;
+
+    @Override
+    public String[] getSupportedCommandStrings() {
+        return new String[] { "TAKETHIS" };
+    }
+
+    @Override
+    public boolean hasFinished() {
+        return finished;
+    }
+
+    @Override
+    public String impliedCapability() {
+        return "STREAMING";
+    }
+
+    /**
+     * The article is already on its way, so this command must not be
+     * rejected when the server is busy.
+     */
+    @Override
+    public boolean isAlwaysAdmitted() {
+        return true;
+    }
+
+    @Override
+    public boolean isStateful() {
+        return true;
+    }
+
+    @Override
+    public void processLine(NNTPConnection conn, String line, byte[] raw)
+            throws IOException, StorageBackendException {
+        if (raw == null) {
+            raw = line.getBytes(conn.getCurrentCharset());
+        }
+        processLine(conn, raw, 0, raw.length);
+    }
+
+    @Override
+    public void processLine(NNTPConnection conn, byte[] buf, int off, int len)
+            throws IOException, StorageBackendException {
+        if (buffer == null) {
+            String[] command = new String(buf, off, len, conn.getCurrentCharset())
+                    .trim().split("\\s+");
+            messageID = command.length > 1 ? command[1] : "";
+            valid = command.length == 2 && messageID.matches(NNTPConnection.MESSAGE_ID_PATTERN);
+            claimed = valid && PeerIngest.claim(messageID);
+            buffer = new ArticleBuffer();
+            return;
+        }
+
+        if (!buffer.add(buf, off, len)) {
+            return;
+        }
+
+        finished = true;
+        if (!valid) {
+            conn.println("501 syntax error");
+            return;
+        }
+        if (!claimed) {
+            // Another peer is transferring the same article
+            conn.println("439 " + messageID);
+            return;
+        }
+
+        try {
+            switch (PeerIngest.store(messageID, buffer)) {
+                case STORED -> conn.println("239 " + messageID);
+                case REJECTED -> conn.println("439 " + messageID);
+                case FAILED -> {
+                    // TAKETHIS cannot be deferred, the peer has to retry
+                    // the whole session
+                    conn.println("400 service temporarily unavailable");
+                    conn.close();
+                }
+            }
+        } finally {
+            PeerIngest.release(messageID);
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.sonews.daemon.command;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.regex.PatternSyntaxException;
@@ -105,52 +106,60 @@ public class XPatCommand implements Command {
     @Override
     public void processLine(NNTPConnection conn, final String line, byte[] raw)
             throws IOException, StorageBackendException {
-        if (conn.getCurrentGroup() == null) {
-            conn.println("430 no group selected");
-            return;
-        }
+        conn.beginResponse();
+        try {
+            if (conn.getCurrentGroup() == null) {
+                conn.println("430 no group selected");
+                return;
+            }
 
-        String[] command = line.split("\\p{Space}+");
+            String[] command = line.split("\\p{Space}+");
 
-        // There may be multiple patterns and Thunderbird produces
-        // additional spaces between range and pattern
-        if (command.length >= 4) {
-            String header = command[1].toLowerCase(Locale.US);
-            String range = command[2];
-            String pattern = command[3];
+            // There may be multiple patterns and Thunderbird produces
+            // additional spaces between range and pattern
+            if (command.length >= 4) {
+                String header = command[1].toLowerCase(Locale.US);
+                String range = command[2];
+                // Additional arguments form one pattern
+                String pattern = String.join(" ",
+                        Arrays.copyOfRange(command, 3, command.length));
 
-            long start = -1;
-            long end = -1;
-            if (range.contains("-")) {
-                String[] rsplit = range.split("-", 2);
-                start = Long.parseLong(rsplit[0]);
-                if (rsplit[1].length() > 0) {
-                    end = Long.parseLong(rsplit[1]);
+                long start = -1;
+                long end = -1;
+                if (range.contains("-")) {
+                    String[] rsplit = range.split("-", 2);
+                    start = Long.parseLong(rsplit[0]);
+                    if (rsplit[1].length() > 0) {
+                        end = Long.parseLong(rsplit[1]);
+                    }
+                } else // TODO: Handle Message-IDs
+                {
+                    start = Long.parseLong(range);
+                    end = start;
                 }
-            } else // TODO: Handle Message-IDs
-            {
-                start = Long.parseLong(range);
-            }
 
-            try {
-                List<Pair<Long, String>> heads = StorageManager.current()
-                        .getArticleHeaders(conn.getCurrentGroup(), start,
-                                end, header, pattern);
+                try {
+                    List<Pair<Long, String>> heads = StorageManager.current()
+                            .getArticleHeaders(conn.getCurrentGroup(), start,
+                                    end, header, pattern);
 
-                conn.println("221 header follows");
-                for (Pair<Long, String> head : heads) {
-                    conn.println(head.getA() + " " + head.getB());
+                    conn.println("221 header follows");
+                    for (Pair<Long, String> head : heads) {
+                        conn.println(head.getA() + " " + head.getB());
+                    }
+                    conn.println(".");
+                } catch (PatternSyntaxException ex) {
+                    ex.printStackTrace();
+                    conn.println("500 invalid pattern syntax");
+                } catch (StorageBackendException ex) {
+                    ex.printStackTrace();
+                    conn.println("500 internal server error");
                 }
-                conn.println(".");
-            } catch (PatternSyntaxException ex) {
-                ex.printStackTrace();
-                conn.println("500 invalid pattern syntax");
-            } catch (StorageBackendException ex) {
-                ex.printStackTrace();
-                conn.println("500 internal server error");
+            } else {
+                conn.println("430 invalid command usage");
             }
-        } else {
-            conn.println("430 invalid command usage");
+        } finally {
+            conn.endResponse();
         }
     }
 }
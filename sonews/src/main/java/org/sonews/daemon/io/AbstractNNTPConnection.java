@@ -0,0 +1,258 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon.io;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import org.sonews.auth.User;
+import org.sonews.daemon.CommandLimiter;
+import org.sonews.daemon.CommandSelector;
+import org.sonews.daemon.NNTPConnection;
+import org.sonews.daemon.command.Command;
+import org.sonews.storage.Article;
+import org.sonews.storage.Group;
+import org.sonews.storage.StorageBackendException;
+import org.sonews.util.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Base class for NNTPConnection implementations. Holds the session state of
+ * a client connection and dispatches the received lines to the fitting
+ * Command instances. Subclasses only have to provide the transport, i.e.
+ * reading lines from and writing lines to the client.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+abstract class AbstractNNTPConnection implements NNTPConnection {
+
+    /** Buffered response data is flushed when it exceeds this size */
+    protected static final int RESPONSE_BUFFER_SIZE = 64 * 1024;
+
+    protected Charset charset = StandardCharsets.UTF_8;
+    protected Command command = null;
+
+    @Autowired
+    protected ApplicationContext context;
+
+    @Autowired
+    protected CommandLimiter limiter;
+
+    private Article currentArticle = null;
+    private Group currentGroup = null;
+    private volatile long lastActivity = System.currentTimeMillis();
+    private volatile boolean commandPending = false;
+    private User user;
+    private int responseDepth = 0;
+
+    /**
+     * @return Address of the remote client, used for logging purposes.
+     */
+    protected abstract SocketAddress getRemoteAddress();
+
+    /**
+     * Sends all buffered response data to the client.
+     *
+     * @throws IOException
+     */
+    protected abstract void flush() throws IOException;
+
+    /**
+     * @return true if println() should buffer the written lines.
+     */
+    protected boolean isResponseBuffered() {
+        return responseDepth > 0;
+    }
+
+    @Override
+    public void beginResponse() {
+        responseDepth++;
+    }
+
+    @Override
+    public void endResponse() throws IOException {
+        if (responseDepth > 0 && --responseDepth == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * This method determines the fitting command processing class. Only the
+     * command name, i.e. the first word of the line, is decoded.
+     *
+     * @param buf
+     * @param off
+     * @param len
+     * @return
+     */
+    private Command parseCommandLine(byte[] buf, int off, int len) {
+        int end = off + len;
+        while (off < end && Character.isWhitespace(buf[off])) {
+            off++;
+        }
+        int cmdEnd = off;
+        while (cmdEnd < end && !Character.isWhitespace(buf[cmdEnd])) {
+            cmdEnd++;
+        }
+        String cmdStr = new String(buf, off, cmdEnd - off, StandardCharsets.US_ASCII);
+        CommandSelector csel = context.getBean(CommandSelector.class);
+        return csel.get(cmdStr);
+    }
+
+    /**
+     * Processes a line received from the client. The line is given as a slice
+     * of the receive buffer without the line terminator and is only decoded
+     * if the command needs it. Calls to this method must not overlap for a
+     * single connection.
+     *
+     * The first line of every command is subject to the CommandLimiter; if
+     * the server is busy the command is rejected with its busy response
+     * (403, or e.g. 431 for CHECK), unless it is always admitted (TAKETHIS).
+     * Further lines of multi-line commands are always processed, as the
+     * command was already admitted.
+     *
+     * @param buf
+     * @param off
+     * @param len
+     * @throws java.io.IOException
+     */
+    public void lineReceived(byte[] buf, int off, int len) throws IOException {
+        this.lastActivity = System.currentTimeMillis();
+
+        if (Log.get().isLoggable(Level.FINE)) {
+            Log.get().log(Level.FINE, "<< {0}", new String(buf, off, len, charset));
+        }
+
+        boolean acquired = false;
+        if (command == null) {
+            command = parseCommandLine(buf, off, len);
+            assert command != null;
+            acquired = limiter.acquire();
+            if (!acquired && !command.isAlwaysAdmitted()) {
+                Log.get().log(Level.FINE, "Command limit {0} reached, rejecting command of {1}",
+                        new Object[] { limiter.getLimit(), getRemoteAddress() });
+                println(command.busyResponse(new String(buf, off, len, charset)));
+                command = null;
+                return;
+            }
+        }
+
+        try {
+            // The command object will process the line we just received
+            try {
+                command.processLine(this, buf, off, len);
+            } catch (StorageBackendException ex) {
+                Log.get().info("Retry command processing after StorageBackendException");
+
+                // Try it a second time, so that the backend has time to recover
+                command.processLine(this, buf, off, len);
+            }
+        } catch (ClosedChannelException ex0) {
+            try {
+                StringBuilder strBuf = new StringBuilder();
+                strBuf.append("Connection to ");
+                strBuf.append(getRemoteAddress());
+                strBuf.append(" closed: ");
+                strBuf.append(ex0);
+                Log.get().info(strBuf.toString());
+            } catch (Exception ex0a) {
+                Log.get().log(Level.INFO, ex0a.getLocalizedMessage(), ex0a);
+            }
+        } catch (IOException ex1) {
+            // This will catch a second StorageBackendException
+            command = null;
+            Log.get().log(Level.WARNING, ex1.getLocalizedMessage(), ex1);
+            println("403 Internal server error");
+
+            // Should we end the connection here?
+            // RFC says we MUST return 400 before closing the connection
+            close();
+        } finally {
+            if (acquired) {
+                limiter.release();
+            }
+        }
+
+        if (command == null || command.hasFinished()) {
+            command = null;
+            charset = StandardCharsets.UTF_8; // Reset to default
+        }
+        commandPending = command != null;
+    }
+
+    @Override
+    public Article getCurrentArticle() {
+        return currentArticle;
+    }
+
+    @Override
+    public Charset getCurrentCharset() {
+        return charset;
+    }
+
+    @Override
+    public Group getCurrentGroup() {
+        return currentGroup;
+    }
+
+    @Override
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    @Override
+    public User getUser() {
+        return user;
+    }
+
+    @Override
+    public boolean isCommandPending() {
+        return commandPending;
+    }
+
+    @Override
+    public void println(byte[] line) throws IOException {
+        println(new String(line, charset));
+    }
+
+    @Override
+    public void setCurrentArticle(Article art) {
+        currentArticle = art;
+    }
+
+    @Override
+    public void setCurrentGroup(Group group) {
+        currentGroup = group;
+    }
+
+    @Override
+    public void setLastActivity(long time) {
+        lastActivity = time;
+    }
+
+    @Override
+    public void setUser(User user) {
+        this.user = user;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon.io;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.sonews.config.Config;
+
+/**
+ * Decides whether a newly accepted connection is served or rejected. A
+ * connection is admitted if the total number of connections, the number of
+ * connections from the same client address and the free heap are within the
+ * configured limits. Every admitted connection must be released exactly once
+ * when it has ended.
+ *
+ * The free heap is estimated from the heap usage after the last garbage
+ * collection, so garbage that has not yet been collected does not lead to
+ * rejections.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+class AdmissionControl {
+
+    /**
+     * Reasons for rejecting a connection.
+     */
+    enum Rejection {
+        TOO_MANY_CONNECTIONS,
+        TOO_MANY_CONNECTIONS_PER_CLIENT,
+        LOW_MEMORY
+    }
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final Map<InetAddress, Integer> perClient = new ConcurrentHashMap<>();
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans()
+            .stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+
+    /**
+     * Tries to admit a connection from the given address.
+     *
+     * @param address
+     * @return null if the connection was admitted, otherwise the reason for
+     *         the rejection.
+     */
+    Rejection admit(InetAddress address) {
+        int maxConnections = Config.inst().get(Config.PERF_MAX_CONNECTIONS, 10000);
+        int maxPerClient = Config.inst().get(Config.PERF_MAX_CONNECTIONS_PER_CLIENT, 64);
+
+        if (getFreeHeap() < 1024L * 1024L * Config.inst().get(Config.PERF_MIN_FREE_MEMORY, 32)) {
+            return Rejection.LOW_MEMORY;
+        }
+
+        if (active.incrementAndGet() > maxConnections) {
+            active.decrementAndGet();
+            return Rejection.TOO_MANY_CONNECTIONS;
+        }
+
+        // The per client count is incremented only if it is below the limit
+        var admitted = new boolean[1];
+        perClient.compute(address, (addr, count) -> {
+            int n = count == null ? 0 : count;
+            admitted[0] = n < maxPerClient;
+            return admitted[0] ? n + 1 : (count == null ? null : n);
+        });
+        if (!admitted[0]) {
+            active.decrementAndGet();
+            return Rejection.TOO_MANY_CONNECTIONS_PER_CLIENT;
+        }
+        return null;
+    }
+
+    /**
+     * Releases a connection that was admitted before.
+     *
+     * @param address
+     */
+    void release(InetAddress address) {
+        perClient.computeIfPresent(address, (addr, count) -> count > 1 ? count - 1 : null);
+        active.decrementAndGet();
+    }
+
+    /**
+     * @return Number of currently admitted connections.
+     */
+    int getActiveConnections() {
+        return active.get();
+    }
+
+    /**
+     * @return Estimated number of bytes that can still be allocated on the
+     *         heap.
+     */
+    long getFreeHeap() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return Runtime.getRuntime().maxMemory() - used;
+    }
+}
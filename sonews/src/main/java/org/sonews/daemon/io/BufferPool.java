@@ -0,0 +1,89 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.sonews.config.Config;
+
+/**
+ * Pool of reusable direct ByteBuffers of a fixed size. The number of direct
+ * buffers ever allocated is bounded by the config value
+ * sonews.perf.maxcachedbuffers. If the pool is exhausted, short-living heap
+ * buffers are handed out instead that are simply dropped on recycling.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+public class BufferPool {
+
+    /** Size of every buffer in bytes */
+    public static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final BufferPool instance = new BufferPool(
+            Config.inst().get(Config.PERF_MAX_CACHED_BUFFERS, 1024));
+
+    /**
+     * @return The process-wide BufferPool instance.
+     */
+    public static BufferPool getInstance() {
+        return instance;
+    }
+
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final int maxBuffers;
+
+    BufferPool(int maxBuffers) {
+        this.maxBuffers = maxBuffers;
+    }
+
+    /**
+     * Returns a cleared buffer of BUFFER_SIZE bytes. The caller must return
+     * the buffer with recycle() when it is no longer needed.
+     *
+     * @return
+     */
+    public ByteBuffer allocate() {
+        ByteBuffer buf = buffers.poll();
+        if (buf != null) {
+            return buf;
+        }
+
+        if (allocated.incrementAndGet() <= maxBuffers) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        } else {
+            allocated.decrementAndGet();
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Puts the given buffer back into the pool. Heap buffers are not pooled.
+     *
+     * @param buf
+     */
+    public void recycle(ByteBuffer buf) {
+        if (buf.isDirect()) {
+            buf.clear();
+            buffers.offer(buf);
+        }
+    }
+}
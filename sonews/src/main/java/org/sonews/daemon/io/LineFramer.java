@@ -0,0 +1,152 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a byte stream into lines terminated by CRLF (or a single LF) without
+ * decoding them. The data is read into a reusable buffer and every complete
+ * line is handed to a LineHandler as a slice of this buffer, so no copy of
+ * the line is made.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+class LineFramer {
+
+    /** Maximum length of a line including the line terminator */
+    static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+    /**
+     * Receives the lines found by a LineFramer.
+     */
+    @FunctionalInterface
+    interface LineHandler {
+
+        /**
+         * Called for every complete line. The line terminator is not part of
+         * the given slice. The buffer content is only valid during this call.
+         *
+         * @param buf
+         * @param off
+         * @param len
+         * @throws IOException
+         */
+        void lineReceived(byte[] buf, int off, int len) throws IOException;
+    }
+
+    private final int maxLineLength;
+    private byte[] buf;
+    private int start = 0; // Start of the current line
+    private int scan = 0;  // Data before this position contains no LF
+    private int end = 0;   // End of the valid data
+
+    LineFramer() {
+        this(4096, MAX_LINE_LENGTH);
+    }
+
+    LineFramer(int initialSize, int maxLineLength) {
+        this.buf = new byte[initialSize];
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Reads once from the given stream and passes all lines completed by the
+     * read data to the handler. Blocks if the stream blocks.
+     *
+     * @param in
+     * @param handler
+     * @return Number of bytes read or -1 if the end of the stream was reached.
+     * @throws IOException
+     */
+    int read(InputStream in, LineHandler handler) throws IOException {
+        if (end == buf.length) {
+            makeRoom();
+        }
+
+        int num = in.read(buf, end, buf.length - end);
+        if (num > 0) {
+            end += num;
+            frame(handler);
+        }
+        return num;
+    }
+
+    /**
+     * Appends the remaining bytes of the given buffer and passes all lines
+     * completed by them to the handler. Used by SelectorNNTPConnection for
+     * the data read from its channel.
+     *
+     * @param src
+     * @param handler
+     * @throws IOException
+     */
+    void feed(ByteBuffer src, LineHandler handler) throws IOException {
+        while (src.hasRemaining()) {
+            if (end == buf.length) {
+                makeRoom();
+            }
+
+            int num = Math.min(src.remaining(), buf.length - end);
+            src.get(buf, end, num);
+            end += num;
+            frame(handler);
+        }
+    }
+
+    private void frame(LineHandler handler) throws IOException {
+        for (; scan < end; scan++) {
+            if (buf[scan] == '\n') {
+                int off = start;
+                int len = scan - start;
+                if (len > 0 && buf[scan - 1] == '\r') {
+                    len--;
+                }
+                start = scan + 1;
+                handler.lineReceived(buf, off, len);
+            }
+        }
+
+        if (start == end) {
+            start = scan = end = 0;
+        }
+    }
+
+    /**
+     * Makes room for more data at the end of the buffer by moving the
+     * current line to the front or by growing the buffer.
+     */
+    private void makeRoom() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buf, start, buf, 0, end - start);
+            scan -= start;
+            end -= start;
+            start = 0;
+        } else if (buf.length < maxLineLength) {
+            byte[] newBuf = new byte[Math.min(buf.length * 2, maxLineLength)];
+            System.arraycopy(buf, 0, newBuf, 0, end);
+            buf = newBuf;
+        } else {
+            throw new IOException("Line exceeds " + maxLineLength + " bytes");
+        }
+    }
+}
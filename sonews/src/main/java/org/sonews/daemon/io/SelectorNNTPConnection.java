@@ -0,0 +1,491 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon.io;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import org.sonews.config.Config;
+import org.sonews.daemon.Connections;
+import org.sonews.storage.BodyRegion;
+import org.sonews.util.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * NNTPConnection using a non-blocking SocketChannel that is driven by a
+ * SelectorReactor. An idle connection holds neither a thread nor any I/O
+ * buffer; buffers are taken from the BufferPool only while data is read or
+ * waiting to be written.
+ *
+ * The reactor thread splits the incoming data into lines and queues them.
+ * The lines are then processed in order by a worker thread, at most one
+ * worker per connection at a time.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+@Component
+@Scope("prototype")
+public class SelectorNNTPConnection extends AbstractNNTPConnection {
+
+    /** Reading is suspended if more input than this is waiting */
+    private static final int MAX_PENDING_INPUT = 1024 * 1024;
+
+    /** Writers are blocked if more output than this is waiting */
+    private static final int MAX_PENDING_OUTPUT = 1024 * 1024;
+
+    private final SocketChannel channel;
+    private final SelectorReactor reactor;
+    private SelectionKey key;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile boolean closing = false;
+
+    // Input state, the framer is only accessed by the reactor thread
+    private final LineFramer framer = new LineFramer();
+    private final Queue<byte[]> pendingLines = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingInput = new AtomicLong();
+    private final AtomicBoolean processing = new AtomicBoolean(false);
+    private volatile boolean readSuspended = false;
+
+    // Output state, guarded by writeLock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition outputDrained = writeLock.newCondition();
+    private final ArrayDeque<Object> outQueue = new ArrayDeque<>(); // ByteBuffer or RegionTransfer
+    private long pendingOutput = 0;
+    private boolean writeInterest = false;
+
+    /**
+     * A BodyRegion in the output queue and the progress of its transfer.
+     */
+    private static final class RegionTransfer {
+        final BodyRegion region;
+        long position = 0;
+
+        RegionTransfer(BodyRegion region) {
+            this.region = region;
+        }
+    }
+
+    @Autowired
+    public SelectorNNTPConnection(SocketChannel channel, SelectorReactor reactor) {
+        this.channel = channel;
+        this.reactor = reactor;
+    }
+
+    void setSelectionKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Sends the hello message to the client.
+     */
+    void greet() {
+        println("200 "
+                + Config.inst().get(Config.HOSTNAME, null)
+                + " sonews news server ready, posting allowed");
+    }
+
+    /**
+     * Called by the reactor thread if the channel has data available.
+     *
+     * @throws IOException
+     */
+    void readable() throws IOException {
+        ByteBuffer buf = BufferPool.getInstance().allocate();
+        try {
+            int num = channel.read(buf);
+            if (num < 0) {
+                Log.get().log(Level.INFO, "Connection to {0} closed.", getRemoteAddress());
+                close();
+                return;
+            }
+
+            buf.flip();
+            framer.feed(buf, this::queueLine);
+            if (!pendingLines.isEmpty()) {
+                scheduleProcessing();
+            }
+        } finally {
+            BufferPool.getInstance().recycle(buf);
+        }
+
+        if (pendingInput.get() > MAX_PENDING_INPUT) {
+            // Let the client wait until the worker has caught up
+            readSuspended = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Queues a line found by the LineFramer for the worker. Called by the
+     * reactor thread.
+     */
+    private void queueLine(byte[] buf, int off, int len) {
+        pendingInput.addAndGet(len + 1);
+        pendingLines.offer(Arrays.copyOfRange(buf, off, off + len));
+    }
+
+    private void scheduleProcessing() {
+        if (processing.compareAndSet(false, true)) {
+            reactor.getWorkers().execute(this::processLines);
+        }
+    }
+
+    /**
+     * Processes all queued lines in order. Runs in a worker thread. The
+     * replies to all processed lines are flushed together.
+     */
+    private void processLines() {
+        try {
+            beginResponse();
+            try {
+                byte[] line;
+                while (!closed.get() && !closing && (line = pendingLines.poll()) != null) {
+                    pendingInput.addAndGet(-line.length - 1);
+                    lineReceived(line, 0, line.length);
+                }
+            } finally {
+                endResponse();
+            }
+        } catch (IOException ex) {
+            Log.get().log(Level.INFO, "Connection to {0} closed: {1}",
+                    new Object[]{getRemoteAddress(), ex.getMessage()});
+            closeQuietly();
+        } catch (RuntimeException ex) {
+            Log.get().log(Level.SEVERE, "Error handling client connection", ex);
+            closeQuietly();
+        } finally {
+            processing.set(false);
+        }
+
+        if (closed.get()) {
+            return;
+        }
+
+        if (readSuspended && pendingInput.get() <= MAX_PENDING_INPUT / 2) {
+            readSuspended = false;
+            reactor.execute(() -> {
+                if (key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                }
+            });
+        }
+
+        // Lines may have been queued after the loop above has ended
+        if (!pendingLines.isEmpty()) {
+            scheduleProcessing();
+        }
+    }
+
+    /**
+     * Called by the reactor thread if the channel can take more data.
+     *
+     * @throws IOException
+     */
+    void writable() throws IOException {
+        writeLock.lock();
+        try {
+            if (writeQueued()) {
+                writeInterest = false;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                if (closing) {
+                    abort();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes as much of the queued output as the channel takes without
+     * blocking. Must be called with writeLock held.
+     *
+     * @return true if the output queue is empty afterwards.
+     * @throws IOException
+     */
+    private boolean writeQueued() throws IOException {
+        Object item;
+        while ((item = outQueue.peek()) != null) {
+            if (item instanceof RegionTransfer rt) {
+                // Transfer in chunks so that a single large region cannot
+                // occupy the reactor thread for long
+                long num = rt.region.transferTo(rt.position,
+                        RESPONSE_BUFFER_SIZE, channel);
+                rt.position += num;
+                pendingOutput -= num;
+                if (rt.position < rt.region.size()) {
+                    return false;
+                }
+                rt.region.close();
+            } else {
+                ByteBuffer buf = (ByteBuffer) item;
+                pendingOutput -= channel.write(buf);
+                if (buf.hasRemaining()) {
+                    return false;
+                }
+                BufferPool.getInstance().recycle(buf);
+            }
+            outQueue.poll();
+        }
+        outputDrained.signalAll();
+        return true;
+    }
+
+    /**
+     * Blocks the calling worker while the client does not read its data.
+     * Must be called with writeLock held.
+     */
+    private void awaitOutputDrained() throws IOException, InterruptedException {
+        while (pendingOutput > MAX_PENDING_OUTPUT && !closed.get()) {
+            if (!outputDrained.await(Config.inst().get(Config.TIMEOUT, 180), TimeUnit.SECONDS)) {
+                throw new IOException("Timeout while writing to " + getRemoteAddress());
+            }
+        }
+    }
+
+    /**
+     * Queues the given bytes for writing. Unless a response is being
+     * buffered, the queued data is written immediately.
+     *
+     * @param data
+     * @throws IOException
+     */
+    private void write(byte[] data) throws IOException {
+        writeLock.lock();
+        try {
+            awaitOutputDrained();
+            if (closed.get()) {
+                return;
+            }
+
+            int off = 0;
+            if (outQueue.peekLast() instanceof ByteBuffer last) {
+                // Fill up the last buffer first
+                last.compact();
+                int len = Math.min(last.remaining(), data.length);
+                last.put(data, 0, len);
+                last.flip();
+                off = len;
+            }
+            while (off < data.length) {
+                ByteBuffer buf = BufferPool.getInstance().allocate();
+                int len = Math.min(buf.remaining(), data.length - off);
+                buf.put(data, off, len);
+                buf.flip();
+                outQueue.offer(buf);
+                off += len;
+            }
+            pendingOutput += data.length;
+
+            if (!isResponseBuffered() || pendingOutput >= RESPONSE_BUFFER_SIZE) {
+                writeOrWait();
+            }
+        } catch (InterruptedException ex) {
+            throw new IOException(ex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Queues the given region for transfer. The region is sent directly from
+     * its source, e.g. with FileChannel.transferTo() for file regions.
+     *
+     * @param region
+     * @throws IOException
+     */
+    @Override
+    public void write(BodyRegion region) throws IOException {
+        writeLock.lock();
+        try {
+            awaitOutputDrained();
+            if (closed.get()) {
+                region.close();
+                return;
+            }
+
+            outQueue.offer(new RegionTransfer(region));
+            pendingOutput += region.size();
+
+            if (!isResponseBuffered() || pendingOutput >= RESPONSE_BUFFER_SIZE) {
+                writeOrWait();
+            }
+            Log.get().log(Level.FINE, ">> [{0} bytes]", region.size());
+        } catch (InterruptedException ex) {
+            region.close();
+            throw new IOException(ex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the queued data. If the channel does not take all data, the
+     * reactor is asked to continue when the channel becomes writable. Must
+     * be called with writeLock held.
+     *
+     * @throws IOException
+     */
+    private void writeOrWait() throws IOException {
+        if (!writeQueued() && !writeInterest) {
+            writeInterest = true;
+            reactor.execute(() -> {
+                if (key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void flush() throws IOException {
+        writeLock.lock();
+        try {
+            if (!outQueue.isEmpty()) {
+                writeOrWait();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Closes the connection after the queued output, e.g. the reply to the
+     * QUIT command, has been sent. No further input is processed.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (!closed.get() && channel.isOpen() && (closing || !writeQueued())) {
+                if (!closing) {
+                    // The reactor closes the connection when the output is drained
+                    closing = true;
+                    writeInterest = true;
+                    reactor.execute(() -> {
+                        if (key.isValid()) {
+                            key.interestOps(SelectionKey.OP_WRITE);
+                        }
+                    });
+                }
+                return;
+            }
+        } catch (IOException ex) {
+            Log.get().log(Level.FINE, ex.getLocalizedMessage(), ex);
+        } finally {
+            writeLock.unlock();
+        }
+
+        abort();
+    }
+
+    /**
+     * Closes the connection immediately, discarding all queued output.
+     *
+     * @throws IOException
+     */
+    private void abort() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        Connections.getInstance().remove(this);
+
+        writeLock.lock();
+        try {
+            for (Object item : outQueue) {
+                if (item instanceof RegionTransfer rt) {
+                    try {
+                        rt.region.close();
+                    } catch (IOException ex) {
+                        Log.get().log(Level.FINE, ex.getLocalizedMessage(), ex);
+                    }
+                } else {
+                    BufferPool.getInstance().recycle((ByteBuffer) item);
+                }
+            }
+            outQueue.clear();
+            pendingOutput = 0;
+            outputDrained.signalAll();
+        } finally {
+            writeLock.unlock();
+        }
+
+        pendingLines.clear();
+        if (key != null) {
+            key.cancel();
+        }
+        channel.close();
+    }
+
+    /**
+     * Closes the connection immediately, e.g. after an I/O error.
+     */
+    void closeQuietly() {
+        try {
+            abort();
+        } catch (IOException ex) {
+            Log.get().log(Level.FINE, ex.getLocalizedMessage(), ex);
+        }
+    }
+
+    @Override
+    protected SocketAddress getRemoteAddress() {
+        try {
+            return channel.getRemoteAddress();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public SocketChannel getSocketChannel() {
+        return channel;
+    }
+
+    @Override
+    public void println(CharSequence line) {
+        try {
+            write((line + NEWLINE).getBytes(charset));
+            Log.get().log(Level.FINE, ">> {0}", line);
+        } catch (IOException ex) {
+            Log.get().log(Level.INFO, "Could not write to {0}: {1}",
+                    new Object[]{getRemoteAddress(), ex.getMessage()});
+            closeQuietly();
+        }
+    }
+}
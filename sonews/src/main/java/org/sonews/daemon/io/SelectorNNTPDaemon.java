@@ -0,0 +1,127 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon.io;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import org.sonews.daemon.DaemonRunner;
+import org.sonews.daemon.DaemonThread;
+import org.sonews.daemon.NNTPDaemonRunnable;
+import org.sonews.util.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * NNTPDaemonRunnable based on non-blocking channels. A small number of
+ * SelectorReactor threads (one per available processor) multiplexes all
+ * client connections; only the processing of complete command lines is
+ * done in virtual worker threads. Idle connections therefore cost neither a
+ * thread nor a read buffer, which makes this daemon suitable for servers
+ * with many mostly idle readers.
+ *
+ * To use this daemon set the class of the NNTPDaemon bean in sonews.xml to
+ * org.sonews.daemon.io.SelectorNNTPDaemon.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+@Component
+public class SelectorNNTPDaemon extends DaemonRunner implements NNTPDaemonRunnable {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private Log logger;
+
+    private int port;
+    private ServerSocketChannel serverChannel = null;
+    private ExecutorService workers;
+    private final List<DaemonThread> reactors = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    @Override
+    public void run() {
+        try {
+            logger.log(Level.INFO, "Server listening on port {0}", port);
+
+            workers = Executors.newVirtualThreadPerTaskExecutor();
+
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+
+            int numReactors = Runtime.getRuntime().availableProcessors();
+            for (int n = 0; n < numReactors; n++) {
+                var reactor = new SelectorReactor(n, context, serverChannel, workers);
+                var thread = new DaemonThread(reactor);
+                reactors.add(thread);
+                thread.start();
+            }
+
+            for (DaemonThread reactor : reactors) {
+                reactor.join();
+            }
+        } catch (BindException ex) {
+            logger.log(Level.SEVERE, ex.getLocalizedMessage() + " -> shutdown sonews", ex);
+            daemon.requestShutdown();
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Could not open server channel", ex);
+            daemon.requestShutdown();
+        } catch (InterruptedException ex) {
+            logger.log(Level.INFO, "Interrupted while waiting for reactors");
+        } finally {
+            if (workers != null) {
+                workers.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Closes the server channel and stops all reactors and workers.
+     */
+    @Override
+    public void dispose() {
+        if (serverChannel != null) {
+            try {
+                serverChannel.close();
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, ex.getLocalizedMessage(), ex);
+            }
+        }
+        for (DaemonThread reactor : reactors) {
+            reactor.requestShutdown();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon.io;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import org.sonews.daemon.Connections;
+import org.sonews.daemon.DaemonRunner;
+import org.sonews.util.Log;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Event loop of the SelectorNNTPDaemon. Every reactor owns a Selector and
+ * handles the readiness events of its connections. The listening
+ * ServerSocketChannel is registered with the Selectors of all reactors, so
+ * incoming connections are accepted by whichever reactor is woken up first.
+ * The reactor itself never executes commands; complete command lines are
+ * handed over to the worker Executor.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+class SelectorReactor extends DaemonRunner {
+
+    private final ApplicationContext context;
+    private final int index;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Executor workers;
+
+    SelectorReactor(int index, ApplicationContext context,
+            ServerSocketChannel serverChannel, Executor workers) throws IOException {
+        this.index = index;
+        this.context = context;
+        this.serverChannel = serverChannel;
+        this.workers = workers;
+        this.selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Executes the given task within the reactor thread. This is the only
+     * way other threads may modify the SelectionKeys of this reactor.
+     *
+     * @param task
+     */
+    void execute(Runnable task) {
+        tasks.offer(task);
+        selector.wakeup();
+    }
+
+    Executor getWorkers() {
+        return workers;
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            // Another reactor was faster
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Log.get().log(Level.INFO, "Connected: {0}", channel.getRemoteAddress());
+
+        var conn = context.getBean(SelectorNNTPConnection.class, channel, this);
+        conn.setSelectionKey(channel.register(selector, SelectionKey.OP_READ, conn));
+        Connections.getInstance().add(conn);
+        conn.greet();
+    }
+
+    @Override
+    public void dispose() {
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        this.daemon.setName("SelectorReactor-" + index);
+
+        try {
+            while (daemon.isRunning() && serverChannel.isOpen()) {
+                selector.select();
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+                while (iter.hasNext()) {
+                    SelectionKey key = iter.next();
+                    iter.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException ex) {
+            Log.get().log(Level.SEVERE, "Selector failed", ex);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof SelectorNNTPConnection conn) {
+                    conn.closeQuietly();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ex) {
+                Log.get().log(Level.WARNING, ex.getLocalizedMessage(), ex);
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                try {
+                    accept();
+                } catch (IOException ex) {
+                    Log.get().log(Level.SEVERE, "IOException while accepting connection: {0}", ex.getMessage());
+                }
+                return;
+            }
+
+            var conn = (SelectorNNTPConnection) key.attachment();
+            if (key.isReadable()) {
+                conn.readable();
+            }
+            if (key.isValid() && key.isWritable()) {
+                conn.writable();
+            }
+        } catch (CancelledKeyException ex) {
+            // Connection was closed concurrently, e.g. by a timeout
+        } catch (IOException ex) {
+            Log.get().log(Level.INFO, "Connection closed: {0}", ex.getMessage());
+            if (key.attachment() instanceof SelectorNNTPConnection conn) {
+                conn.closeQuietly();
+            }
+        }
+    }
+}
@@ -18,50 +18,37 @@
 
 package org.sonews.daemon.io;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
-import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.Charset;
-import java.util.Arrays;
 import java.util.logging.Level;
 import javax.annotation.PreDestroy;
-import org.sonews.auth.User;
 import org.sonews.config.Config;
-import org.sonews.daemon.CommandSelector;
-import org.sonews.daemon.NNTPConnection;
-import org.sonews.daemon.command.Command;
-import org.sonews.storage.Article;
-import org.sonews.storage.Group;
-import org.sonews.storage.StorageBackendException;
+import org.sonews.daemon.Connections;
+import org.sonews.storage.BodyRegion;
 import org.sonews.util.Log;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+/**
+ * NNTPConnection using a blocking Socket. Every instance is run by its own
+ * (platform or virtual) thread.
+ *
+ * @author Christian Lins
+ */
 @Component
 @Scope("prototype")
-public class ThreadedNNTPConnection implements NNTPConnection, Runnable {
-
-    private Charset charset = Charset.forName("UTF-8");
-    private Command command = null;
-
-    @Autowired
-    private ApplicationContext context;
-
-    private Article currentArticle = null;
-    private Group currentGroup = null;
-    private volatile long lastActivity = System.currentTimeMillis();
-    private User user;
+public class ThreadedNNTPConnection extends AbstractNNTPConnection implements Runnable {
 
     private final Socket socket;
-    private PrintWriter out;
+    private OutputStream out;
 
     @Autowired
     public ThreadedNNTPConnection(Socket socket) {
@@ -75,19 +62,32 @@ public class ThreadedNNTPConnection implements NNTPConnection, Runnable {
                     + Config.inst().get(Config.HOSTNAME, null)
                     + " sonews news server ready, posting allowed";
 
-            out = new PrintWriter(socket.getOutputStream());
+            out = new BufferedOutputStream(socket.getOutputStream(), RESPONSE_BUFFER_SIZE);
+            Connections.getInstance().add(this);
             println(hello);
 
-            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            String line;
-            while ((line = in.readLine()) != null) {
-                lineReceived(line.getBytes());
+            // Lines are handed to lineReceived() as undecoded byte slices.
+            // All commands a client has pipelined are processed before the
+            // replies are flushed, so they are sent in as few writes as
+            // possible. The output is flushed before read() would block.
+            InputStream in = socket.getInputStream();
+            LineFramer framer = new LineFramer();
+            beginResponse();
+            try {
+                while (framer.read(in, this::lineReceived) >= 0) {
+                    if (in.available() == 0) {
+                        flush();
+                    }
+                }
+            } finally {
+                endResponse();
             }
         } catch (SocketException | SocketTimeoutException ex) {
             Log.get().log(Level.INFO, "Connection to {0} closed.", socket.getRemoteSocketAddress());
         } catch (IOException ex) {
             Log.get().log(Level.SEVERE, "Error handling client connection", ex);
         } finally {
+            Connections.getInstance().remove(this);
             try {
                 socket.close();
             } catch (IOException e) {
@@ -96,158 +96,73 @@ public class ThreadedNNTPConnection implements NNTPConnection, Runnable {
         }
     }
 
-    /**
-     * This method determines the fitting command processing class.
-     *
-     * @param line
-     * @return
-     */
-    private Command parseCommandLine(String line) {
-        String cmdStr = line.trim().split("\\s+")[0];
-        CommandSelector csel = context.getBean(CommandSelector.class);
-        return csel.get(cmdStr);
-    }
-
-    /**
-     * Due to the readLockGate there is no need to synchronize this method.
-     *
-     * @param raw
-     * @throws java.io.IOException
-     * @throws IllegalArgumentException
-     *             if raw is null.
-     * @throws IllegalStateException
-     *             if calling thread does not own the readLock.
-     */
-    public void lineReceived(byte[] raw) throws IOException {
-        if (raw == null) {
-            throw new IllegalArgumentException("raw is null");
-        }
-
-        this.lastActivity = System.currentTimeMillis();
-
-        String line = new String(raw, this.charset);
-
-        // There might be a trailing \r, but trim() is a bad idea
-        // as it removes also leading spaces from long header lines.
-        if (line.endsWith("\r")) {
-            line = line.substring(0, line.length() - 1);
-            raw = Arrays.copyOf(raw, raw.length - 1);
-        }
-
-        Log.get().log(Level.FINE, "<< {0}", line);
-
-        if (command == null) {
-            command = parseCommandLine(line);
-            assert command != null;
-        }
-
-        try {
-            // The command object will process the line we just received
-            try {
-                command.processLine(this, line, raw);
-            } catch (StorageBackendException ex) {
-                Log.get().info("Retry command processing after StorageBackendException");
-
-                // Try it a second time, so that the backend has time to recover
-                command.processLine(this, line, raw);
-            }
-        } catch (ClosedChannelException ex0) {
-            try {
-                StringBuilder strBuf = new StringBuilder();
-                strBuf.append("Connection to ");
-                strBuf.append(socket.getRemoteSocketAddress());
-                strBuf.append(" closed: ");
-                strBuf.append(ex0);
-                Log.get().info(strBuf.toString());
-            } catch (Exception ex0a) {
-                Log.get().log(Level.INFO, ex0a.getLocalizedMessage(), ex0a);
-            }
-        } catch (IOException ex1) {
-            // This will catch a second StorageBackendException
-            command = null;
-            Log.get().log(Level.WARNING, ex1.getLocalizedMessage(), ex1);
-            println("403 Internal server error");
-
-            // Should we end the connection here?
-            // RFC says we MUST return 400 before closing the connection
-            close();
-        }
-
-        if (command == null || command.hasFinished()) {
-            command = null;
-            charset = Charset.forName("UTF-8"); // Reset to default
-        }
-    }
-
     @PreDestroy
     @Override
     public void close() throws IOException {
-        out.close();
-        socket.close();
-    }
-
-    @Override
-    public Article getCurrentArticle() {
-        return currentArticle;
-    }
-
-    @Override
-    public Charset getCurrentCharset() {
-        return charset;
-    }
-
-    @Override
-    public Group getCurrentGroup() {
-        return currentGroup;
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } finally {
+            socket.close();
+        }
     }
 
     @Override
-    public long getLastActivity() {
-        return lastActivity;
+    protected SocketAddress getRemoteAddress() {
+        return socket.getRemoteSocketAddress();
     }
 
+    /**
+     * @return Always null as this connection is not backed by a channel.
+     */
     @Override
     public SocketChannel getSocketChannel() {
-        return null; // TODO remove from interface
+        return null;
     }
 
     @Override
-    public User getUser() {
-        return user;
-    }
-
-    @Override
-    public void println(byte[] line) {
-        println(new String(line, charset));
+    public void write(BodyRegion region) throws IOException {
+        try {
+            region.writeTo(out);
+            if (!isResponseBuffered()) {
+                out.flush();
+            }
+            Log.get().log(Level.FINE, ">> [{0} bytes]", region.size());
+        } finally {
+            region.close();
+        }
     }
 
     @Override
-    public void println(CharSequence line) {
-        out.append(line);
-        out.append(NEWLINE);
+    protected void flush() throws IOException {
         out.flush();
-
-        Log.get().log(Level.FINE, ">> {0}", line);
-    }
-
-    @Override
-    public void setCurrentArticle(Article art) {
-        currentArticle = art;
-    }
-
-    @Override
-    public void setCurrentGroup(Group group) {
-        currentGroup = group;
-    }
-
-    @Override
-    public void setLastActivity(long time) {
-        lastActivity = time;
     }
 
+    /**
+     * Writes the given line to the client. Within a response the line is
+     * buffered, otherwise it is sent immediately.
+     *
+     * @param line
+     */
     @Override
-    public void setUser(User user) {
-        this.user = user;
+    public void println(CharSequence line) {
+        try {
+            out.write((line + NEWLINE).getBytes(charset));
+            if (!isResponseBuffered()) {
+                out.flush();
+            }
+            Log.get().log(Level.FINE, ">> {0}", line);
+        } catch (IOException ex) {
+            // Closing the socket ends the read loop in run()
+            Log.get().log(Level.INFO, "Could not write to {0}: {1}",
+                    new Object[]{socket.getRemoteSocketAddress(), ex.getMessage()});
+            try {
+                socket.close();
+            } catch (IOException e) {
+                Log.get().log(Level.WARNING, "Error closing client socket", e);
+            }
+        }
     }
 
 }
@@ -19,7 +19,10 @@
 package org.sonews.daemon.io;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
 import java.net.ServerSocket;
+import java.net.Socket;
 import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import org.sonews.daemon.DaemonRunner;
@@ -45,12 +48,71 @@ abstract class ThreadedNNTPDaemon extends DaemonRunner implements NNTPDaemonRunn
     protected int port;
     protected ServerSocket serverSocket = null;
     protected ExecutorService threadPool;
+    protected final AdmissionControl admission = new AdmissionControl();
 
     @Override
     public void setPort(int port) {
         this.port = port;
     }
 
+    /**
+     * Checks the admission of a newly accepted client socket. Rejected clients
+     * get a 400 response and are disconnected immediately, before any
+     * connection handler is created for them.
+     *
+     * @param clientSocket
+     * @return true if the client was admitted and must be released with
+     *         release() after its connection has ended.
+     */
+    protected boolean admit(Socket clientSocket) {
+        var rejection = admission.admit(clientSocket.getInetAddress());
+        if (rejection == null) {
+            return true;
+        }
+
+        logger.log(Level.WARNING, "Rejecting {0}: {1}",
+                new Object[] { clientSocket.getRemoteSocketAddress(), rejection });
+        reject(clientSocket);
+        return false;
+    }
+
+    /**
+     * Sends a 400 response to the given client and closes the socket.
+     *
+     * @param clientSocket
+     */
+    protected void reject(Socket clientSocket) {
+        try (var out = new PrintWriter(clientSocket.getOutputStream())) {
+            out.print("400 Temporary overload, please retry later");
+            out.print(ThreadedNNTPConnection.NEWLINE);
+        } catch (IOException ex) {
+            logger.log(Level.FINE, ex.getLocalizedMessage(), ex);
+        }
+        try {
+            clientSocket.close();
+        } catch (IOException ex) {
+            logger.log(Level.FINE, ex.getLocalizedMessage(), ex);
+        }
+    }
+
+    /**
+     * Wraps the given connection so that its admission is released when the
+     * connection has ended.
+     *
+     * @param conn
+     * @param address
+     * @return
+     */
+    protected Runnable admitted(ThreadedNNTPConnection conn, InetAddress address) {
+        return () -> {
+            try {
+                conn.run();
+            } finally {
+                admission.release(address);
+            }
+        };
+    }
+
     /**
      * Close the server socket and shutdown the thread pool.
      */
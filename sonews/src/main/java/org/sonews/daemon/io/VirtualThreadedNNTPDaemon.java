@@ -19,7 +19,6 @@
 package org.sonews.daemon.io;
 
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.BindException;
 import java.net.ServerSocket;
 import java.net.Socket;
@@ -46,14 +45,17 @@ public class VirtualThreadedNNTPDaemon extends ThreadedNNTPDaemon {
 
             while (daemon.isRunning()) {
                 Socket clientSocket = null;
+                boolean admitted = false;
                 try {
                     // Accept incoming connections
                     clientSocket = serverSocket.accept();
 
-                    // It is important to set the timeout as early as possible
-                    // as in overload situations the connection times out earlier
-                    // to relieve the server from load.
-                    clientSocket.setSoTimeout(20 * 1000); // Timeout of 20 seconds
+                    // Reject clients exceeding the limits as early as possible
+                    // to relieve the server from load
+                    admitted = admit(clientSocket);
+                    if (!admitted) {
+                        continue;
+                    }
 
                     logger.log(Level.INFO, "Connected: {0}", clientSocket.getRemoteSocketAddress());
 
@@ -61,27 +63,28 @@ public class VirtualThreadedNNTPDaemon extends ThreadedNNTPDaemon {
                     var thread = context.getBean(ThreadedNNTPConnection.class, clientSocket);
 
                     // ...and execute it some time in the future.
-                    threadPool.submit(thread);
+                    threadPool.submit(admitted(thread, clientSocket.getInetAddress()));
                 } catch(RejectedExecutionException ex) {
                     // Should not happen with virtual threads but we'll never know
                     logger.warning("Rejecting execution, queue full.");
-                    if (clientSocket != null) {
-                        try (var out = new PrintWriter(clientSocket.getOutputStream())) {
-                            out.print("400 Temporary overload, please retry later");
-                            out.print(ThreadedNNTPConnection.NEWLINE);
-                        }
-                    }
+                    admission.release(clientSocket.getInetAddress());
+                    reject(clientSocket);
                     Thread.sleep(100);
                 } catch (IOException ex) {
                     logger.log(Level.SEVERE, "IOException while accepting connection: {0}", ex.getMessage());
                     logger.info("Connection accepting sleeping for a second...");
                     Thread.sleep(1000);
                 } catch (OutOfMemoryError err) {
-                    // This may happen when we handle to many connections
+                    // Admission control should prevent this, but if it still
+                    // happens only the new connection is dropped; the
+                    // established connections are kept alive
                     logger.log(Level.SEVERE, "OutOfMemoryError, we'll try to continue.", err);
-                    threadPool.shutdownNow();
-                    threadPool = Executors.newVirtualThreadPerTaskExecutor();
-                    logger.warning("Removed all waiting connections.");
+                    if (clientSocket != null) {
+                        if (admitted) {
+                            admission.release(clientSocket.getInetAddress());
+                        }
+                        reject(clientSocket);
+                    }
                     Thread.sleep(5000);
                 }
             }
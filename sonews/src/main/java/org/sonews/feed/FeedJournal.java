@@ -0,0 +1,330 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.feed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only on-disk queue of the Message-IDs that still have to be sent to
+ * a peer. Every line of the journal file holds one Message-ID; a separate
+ * cursor file stores the offset up to which the entries have been sent.
+ * Both survive a restart, so queued articles are not lost.
+ *
+ * Any thread may append, but read() and commit() must only be called by the
+ * single thread sending the entries. Once the cursor has passed
+ * compactSize bytes and the unsent entries are fewer than the sent ones,
+ * commit() copies the unsent entries to a new journal file, so the journal
+ * does not grow without bounds under steady traffic. The offsets of the
+ * entries are not affected by this.
+ *
+ * The files are not forced to disk, so the journal survives a crash of the
+ * process but not necessarily one of the operating system. Entries between
+ * the last commit and a crash are sent again, which is harmless as the peer
+ * rejects duplicates.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+final class FeedJournal {
+
+    /**
+     * A queued Message-ID and the journal offset behind its line.
+     */
+    record Entry(String messageID, long end) {
+    }
+
+    /** Number of bytes read from the journal at once */
+    private static final int READ_SIZE = 16 * 1024;
+
+    /** Default size of sent entries after which the journal is compacted */
+    static final long COMPACT_SIZE = 1024 * 1024;
+
+    private final Path journalFile;
+    private final Path journalTmpFile;
+    private final Path cursorFile;
+    private final Path cursorTmpFile;
+    private final long compactSize;
+
+    /** Guards channel, base, cursor and end */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+
+    private FileChannel channel;
+    /** Offset of the first byte of the journal file */
+    private long base = 0;
+    private long cursor;
+    private long end;
+
+    /**
+     * Opens or creates the journal with the given name in the given
+     * directory.
+     *
+     * @param dir
+     * @param name
+     * @throws IOException
+     */
+    FeedJournal(Path dir, String name) throws IOException {
+        this(dir, name, COMPACT_SIZE);
+    }
+
+    FeedJournal(Path dir, String name, long compactSize) throws IOException {
+        Files.createDirectories(dir);
+        this.journalFile = dir.resolve(name + ".journal");
+        this.journalTmpFile = dir.resolve(name + ".journal.tmp");
+        this.cursorFile = dir.resolve(name + ".cursor");
+        this.cursorTmpFile = dir.resolve(name + ".cursor.tmp");
+        this.compactSize = compactSize;
+        this.channel = open(journalFile);
+        this.end = channel.size();
+
+        if (Files.exists(cursorFile)) {
+            this.cursor = Long.parseLong(Files.readString(cursorFile).trim());
+        }
+        if (cursor > end) {
+            // Journal file of an older version that was truncated before the
+            // cursor was reset
+            cursor = 0;
+        }
+
+        // Terminate a line that was only partially written before a crash
+        if (end > 0) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, end - 1);
+            if (last.get(0) != '\n') {
+                write("\n");
+            }
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Appends the given Message-ID to the journal. This call does not wait
+     * for the peer.
+     *
+     * @param messageID
+     * @throws IOException
+     */
+    void append(String messageID) throws IOException {
+        lock.lock();
+        try {
+            write(messageID + "\n");
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(String str) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(str.getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) {
+            end += channel.write(buf, end - base);
+        }
+    }
+
+    /**
+     * Returns the entries behind the cursor. If there are none, waits up to
+     * the given time for new entries.
+     *
+     * @param max Maximum number of entries returned.
+     * @param timeout Time to wait in milliseconds.
+     * @return Entries in journal order, possibly empty.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    List<Entry> read(int max, long timeout)
+            throws IOException, InterruptedException {
+        FileChannel ch;
+        long pos;
+        long last;
+        long offset;
+        lock.lock();
+        try {
+            if (cursor == end && timeout > 0) {
+                appended.await(timeout, TimeUnit.MILLISECONDS);
+            }
+            // The bytes up to end are not changed by appends, and the file
+            // is only replaced by commit() on this thread
+            ch = channel;
+            pos = cursor;
+            last = end;
+            offset = base;
+        } finally {
+            lock.unlock();
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        while (entries.size() < max && pos < last) {
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(READ_SIZE, last - pos));
+            while (buf.hasRemaining()) {
+                ch.read(buf, pos - offset + buf.position());
+            }
+
+            int lineStart = 0;
+            for (int n = 0; n < buf.limit() && entries.size() < max; n++) {
+                if (buf.get(n) == '\n') {
+                    String messageID = new String(buf.array(), lineStart,
+                            n - lineStart, StandardCharsets.UTF_8).trim();
+                    lineStart = n + 1;
+                    if (!messageID.isEmpty()) {
+                        entries.add(new Entry(messageID, pos + lineStart));
+                    }
+                }
+            }
+            if (lineStart == 0) {
+                // No line terminator within READ_SIZE bytes: skip the garbage
+                lineStart = buf.limit();
+            }
+            pos += lineStart;
+        }
+        return entries;
+    }
+
+    /**
+     * Moves the cursor behind the given entry, i.e. marks it and all
+     * entries before it as sent, and compacts the journal if enough entries
+     * have been sent.
+     *
+     * @param entry
+     * @throws IOException
+     */
+    void commit(Entry entry) throws IOException {
+        long sent;
+        long unsent;
+        lock.lock();
+        try {
+            cursor = Math.max(cursor, entry.end());
+            sent = cursor - base;
+            unsent = end - cursor;
+        } finally {
+            lock.unlock();
+        }
+
+        if (sent > 0 && (unsent == 0 || (sent >= compactSize && unsent <= sent))) {
+            compact();
+        } else {
+            writeCursor(sent);
+        }
+    }
+
+    /**
+     * Copies the unsent entries to a new journal file that replaces the
+     * current one. The cursor file is reset before the journal is replaced,
+     * so a crash in between only causes entries to be sent again.
+     */
+    private void compact() throws IOException {
+        FileChannel ch;
+        long from;
+        long to;
+        long offset;
+        lock.lock();
+        try {
+            ch = channel;
+            from = cursor;
+            to = end;
+            offset = base;
+        } finally {
+            lock.unlock();
+        }
+
+        try (FileChannel tmp = FileChannel.open(journalTmpFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            // Copy the bulk without blocking append()
+            transfer(ch, from - offset, to - from, tmp, 0);
+            writeCursor(0);
+
+            lock.lock();
+            try {
+                // Entries appended in the meantime
+                transfer(ch, to - offset, end - to, tmp, to - from);
+                tmp.close();
+                Files.move(journalTmpFile, journalFile,
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                ch.close();
+                channel = open(journalFile);
+                base = from;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static void transfer(FileChannel src, long position, long count,
+            FileChannel dst, long dstPosition) throws IOException {
+        for (long n = 0; n < count; ) {
+            dst.position(dstPosition + n);
+            n += src.transferTo(position + n, count - n, dst);
+        }
+    }
+
+    private void writeCursor(long value) throws IOException {
+        Files.writeString(cursorTmpFile, Long.toString(value));
+        Files.move(cursorTmpFile, cursorFile,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return Number of bytes of unsent entries.
+     */
+    long backlog() {
+        lock.lock();
+        try {
+            return end - cursor;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up a thread waiting in read().
+     */
+    void wakeup() {
+        lock.lock();
+        try {
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() throws IOException {
+        lock.lock();
+        try {
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
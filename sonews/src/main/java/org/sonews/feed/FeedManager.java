@@ -1,6 +1,6 @@
 /*
  *   SONEWS News Server
- *   Copyright (C) 2009-2015  Christian Lins <christian@lins.me>
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
  *
  *   This program is free software: you can redistribute it and/or modify
  *   it under the terms of the GNU General Public License as published by
@@ -18,8 +18,18 @@
 
 package org.sonews.feed;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import org.sonews.daemon.DaemonThread;
 import org.sonews.storage.Article;
+import org.sonews.storage.Headers;
+import org.sonews.util.Log;
 
 /**
  * Controlls push and pull feeder.
@@ -33,7 +43,13 @@ public final class FeedManager {
     public static final int PUSH = 1;
     
     private static final PullFeeder pullFeeder = new PullFeeder();
-    private static final PushFeeder pushFeeder = new PushFeeder();
+
+    /** PushFeeder of every peer by host and port */
+    private static final Map<String, PushFeeder> pushFeeders = new ConcurrentHashMap<>();
+
+    private static String peerKey(Subscription sub) {
+        return sub.getHost() + ":" + sub.getPort();
+    }
 
     /**
      * Reads the peer subscriptions from database and starts the appropriate
@@ -44,11 +60,61 @@ public final class FeedManager {
         Subscription.getAll();
         
         new DaemonThread(pullFeeder).start();
-        new DaemonThread(pushFeeder).start();
+
+        for (Subscription sub : Subscription.getAll()) {
+            if (sub.getFeedtype() != PUSH || pushFeeders.containsKey(peerKey(sub))) {
+                continue;
+            }
+            try {
+                PushFeeder pushFeeder = new PushFeeder(sub.getHost(), sub.getPort());
+                pushFeeders.put(peerKey(sub), pushFeeder);
+                new DaemonThread(pushFeeder).start();
+            } catch (IOException ex) {
+                Log.get().log(Level.SEVERE, "Could not open feed journal of {0}: {1}",
+                        new Object[] { sub.getHost(), ex });
+            }
+        }
     }
 
+    /**
+     * Queues the given article for every peer that has a PUSH subscription
+     * for one of its groups. Does nothing if feeding was not started.
+     *
+     * @param article
+     */
     public static void queueForPush(Article article) {
-        pushFeeder.queueForPush(article);
+        if (pushFeeders.isEmpty()) {
+            return;
+        }
+
+        String newsgroups = article.getHeader(Headers.NEWSGROUPS)[0];
+        if (newsgroups.isEmpty()) {
+            Log.get().warning("Article has no newsgroups header(s). Skipping.");
+            return;
+        }
+        List<String> groups = Arrays.stream(newsgroups.split(","))
+                .map(String::trim)
+                .toList();
+        String path = article.getHeader(Headers.PATH)[0];
+
+        // A crossposted article is queued only once per peer
+        Set<PushFeeder> feeders = new LinkedHashSet<>();
+        for (Subscription sub : Subscription.getAll()) {
+            if (sub.getFeedtype() != PUSH || !groups.contains(sub.getGroup())) {
+                continue;
+            }
+            // Circle check
+            if (path.contains(sub.getHost())) {
+                Log.get().log(Level.INFO, "{0} skipped for host {1}",
+                        new Object[] { article.getMessageID(), sub.getHost() });
+                continue;
+            }
+            PushFeeder feeder = pushFeeders.get(peerKey(sub));
+            if (feeder != null) {
+                feeders.add(feeder);
+            }
+        }
+        feeders.forEach(feeder -> feeder.queueForPush(article));
     }
 
     private FeedManager() {
@@ -0,0 +1,164 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.feed;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import javax.mail.MessagingException;
+import org.sonews.config.Config;
+import org.sonews.daemon.ArticleIngest;
+import org.sonews.storage.Article;
+import org.sonews.storage.Group;
+import org.sonews.storage.Headers;
+import org.sonews.storage.StorageBackendException;
+import org.sonews.storage.StorageManager;
+import org.sonews.util.Log;
+import org.sonews.util.io.ArticleBuffer;
+
+/**
+ * Stores articles received from peers, either with the commands IHAVE and
+ * TAKETHIS or fetched by the PullFeeder. Keeps track of the articles that are
+ * currently transferred, so that an article offered by several peers at once
+ * is only transferred once. A claim expires after some time in case the
+ * transferring connection is lost.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+public final class PeerIngest {
+
+    /**
+     * Outcome of storing an article received from a peer.
+     */
+    public enum Result {
+        STORED,
+        /** The article is not wanted; the peer must not send it again */
+        REJECTED,
+        /** The article could not be stored; the peer may try again later */
+        FAILED
+    }
+
+    private static final long CLAIM_TIMEOUT = TimeUnit.MINUTES.toNanos(10);
+
+    /** Message-IDs of the articles that are currently transferred */
+    private static final Map<String, Long> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param messageID
+     * @return true if the article is currently transferred by a peer.
+     */
+    public static boolean isInFlight(String messageID) {
+        Long since = inFlight.get(messageID);
+        return since != null && System.nanoTime() - since < CLAIM_TIMEOUT;
+    }
+
+    /**
+     * @param messageID
+     * @return true if the article is already stored.
+     * @throws StorageBackendException
+     */
+    public static boolean isExisting(String messageID) throws StorageBackendException {
+        return StorageManager.current().isArticleExisting(messageID);
+    }
+
+    /**
+     * Marks the given article as being transferred.
+     *
+     * @param messageID
+     * @return false if the article is already being transferred.
+     */
+    public static boolean claim(String messageID) {
+        long now = System.nanoTime();
+        return inFlight.merge(messageID, now,
+                (since, n) -> now - since < CLAIM_TIMEOUT ? since : n) == now;
+    }
+
+    public static void release(String messageID) {
+        inFlight.remove(messageID);
+    }
+
+    /**
+     * Checks the received article and stores it. Stored articles are queued
+     * for the push feeder, so they propagate to the other peers.
+     *
+     * @param messageID Message-ID given with the command.
+     * @param buffer Received article.
+     * @return
+     */
+    public static Result store(String messageID, ArticleBuffer buffer) {
+        if (buffer.isTooLong()) {
+            return reject(messageID, "article is too long");
+        }
+
+        Article article;
+        try {
+            article = buffer.toArticle();
+        } catch (MessagingException ex) {
+            return reject(messageID, "invalid header: " + ex.getMessage());
+        }
+        if (!messageID.equals(article.getHeader(Headers.MESSAGE_ID)[0].trim())) {
+            return reject(messageID, "Message-ID header does not match");
+        }
+
+        // The Xref header refers to the article numbers of the peer
+        article.removeHeader(Headers.XREF);
+
+        // Circle check; the Path starts with our own hostname
+        String host = Config.inst().get(Config.HOSTNAME, "localhost");
+        if (article.getHeader(Headers.PATH)[0].indexOf(host + "!", 1) > 0) {
+            return reject(messageID, "article has already passed this host");
+        }
+
+        boolean wanted = false;
+        for (String groupname : article.getHeader(Headers.NEWSGROUPS)[0].split(",")) {
+            Group group = Group.get(groupname.trim());
+            if (group != null && !group.isDeleted() && !group.isMailingList()) {
+                wanted = true;
+                break;
+            }
+        }
+        if (!wanted) {
+            return reject(messageID, "no local newsgroup");
+        }
+
+        try {
+            if (isExisting(messageID)) {
+                return Result.REJECTED;
+            }
+            ArticleIngest.getInstance().add(article);
+        } catch (StorageBackendException ex) {
+            Log.get().log(Level.WARNING, "Could not store {0}: {1}",
+                    new Object[] { messageID, ex });
+            return Result.FAILED;
+        }
+
+        FeedManager.queueForPush(article);
+        return Result.STORED;
+    }
+
+    private static Result reject(String messageID, String reason) {
+        Log.get().log(Level.INFO, "Rejected {0}: {1}", new Object[] { messageID, reason });
+        return Result.REJECTED;
+    }
+
+    private PeerIngest() {
+    }
+}
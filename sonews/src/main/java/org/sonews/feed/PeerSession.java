@@ -0,0 +1,296 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.feed;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.sonews.storage.Article;
+import org.sonews.util.Log;
+
+/**
+ * Long-lived outgoing connection to a peer. If the peer supports streaming
+ * (RFC 4644), articles are offered with pipelined CHECK commands and the
+ * wanted ones are sent with pipelined TAKETHIS commands, so that a batch
+ * costs two round trips regardless of its size. Otherwise every article is
+ * offered with IHAVE, or, if the peer does not accept IHAVE either, sent
+ * with POST.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+class PeerSession implements Closeable {
+
+    /**
+     * Transfer method negotiated with the peer.
+     */
+    enum Mode {
+        STREAM, IHAVE, POST
+    }
+
+    /**
+     * Outcome of offering an article to the peer.
+     */
+    enum Result {
+        /** The peer has taken the article */
+        ACCEPTED,
+        /** The peer already has the article or does not want it */
+        REFUSED,
+        /** The peer asks to try again later */
+        DEFERRED
+    }
+
+    private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+    private static final int READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(120);
+
+    private final String host;
+    private final Socket socket;
+    private final OutputStream out;
+    private final BufferedReader in;
+    private Mode mode;
+    private long lastUsed = System.nanoTime();
+
+    /**
+     * Connects to the given peer and negotiates the transfer mode.
+     *
+     * @param host
+     * @param port
+     * @throws IOException
+     */
+    PeerSession(String host, int port) throws IOException {
+        this.host = host;
+        this.socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+            socket.setSoTimeout(READ_TIMEOUT);
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            this.in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+
+            String line = readLine();
+            if (!line.startsWith("200 ") && !line.startsWith("201 ")) {
+                throw new IOException("Invalid hello from " + host + ": " + line);
+            }
+
+            writeLine("MODE STREAM");
+            out.flush();
+            this.mode = readLine().startsWith("203") ? Mode.STREAM : Mode.IHAVE;
+            Log.get().log(Level.INFO, "Connected to {0}, feeding with {1}",
+                    new Object[] { host, mode });
+        } catch (IOException ex) {
+            socket.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return Transfer mode used for this peer.
+     */
+    Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return Nanoseconds since the session was last used.
+     */
+    long idleTime() {
+        return System.nanoTime() - lastUsed;
+    }
+
+    /**
+     * Offers the given articles to the peer.
+     *
+     * @param articles
+     * @return The result of every article in the given order.
+     * @throws IOException If the connection failed; the session is unusable
+     *         afterwards.
+     */
+    List<Result> send(List<Article> articles) throws IOException {
+        lastUsed = System.nanoTime();
+        List<Result> results = switch (mode) {
+            case STREAM -> stream(articles);
+            case IHAVE, POST -> {
+                List<Result> res = new ArrayList<>(articles.size());
+                for (Article article : articles) {
+                    res.add(mode == Mode.IHAVE ? ihave(article) : post(article));
+                }
+                yield res;
+            }
+        };
+        lastUsed = System.nanoTime();
+        return results;
+    }
+
+    private List<Result> stream(List<Article> articles) throws IOException {
+        List<Result> results = new ArrayList<>(articles.size());
+
+        // Offer all articles at once...
+        for (Article article : articles) {
+            writeLine("CHECK " + article.getMessageID());
+        }
+        out.flush();
+
+        List<Article> wanted = new ArrayList<>();
+        for (Article article : articles) {
+            String line = readLine();
+            if (line.startsWith("238 ")) {
+                wanted.add(article);
+                results.add(Result.ACCEPTED);
+            } else if (line.startsWith("431 ")) {
+                results.add(Result.DEFERRED);
+            } else if (line.startsWith("438 ")) {
+                results.add(Result.REFUSED);
+            } else {
+                throw new IOException("CHECK " + article.getMessageID()
+                        + " returned: " + line);
+            }
+        }
+
+        // ...then send the wanted ones at once
+        for (Article article : wanted) {
+            writeLine("TAKETHIS " + article.getMessageID());
+            writeArticle(article);
+        }
+        out.flush();
+
+        int n = 0;
+        for (Article article : wanted) {
+            String line = readLine();
+            while (results.get(n) != Result.ACCEPTED) {
+                n++;
+            }
+            if (line.startsWith("439 ")) {
+                Log.get().log(Level.FINE, "{0} rejected by {1}: {2}",
+                        new Object[] { article.getMessageID(), host, line });
+                results.set(n, Result.REFUSED);
+            } else if (!line.startsWith("239 ")) {
+                throw new IOException("TAKETHIS " + article.getMessageID()
+                        + " returned: " + line);
+            }
+            n++;
+        }
+        return results;
+    }
+
+    private Result ihave(Article article) throws IOException {
+        writeLine("IHAVE " + article.getMessageID());
+        out.flush();
+
+        String line = readLine();
+        if (line.startsWith("435 ")) {
+            return Result.REFUSED;
+        } else if (line.startsWith("436 ")) {
+            return Result.DEFERRED;
+        } else if (line.startsWith("500 ") || line.startsWith("502 ")
+                || line.startsWith("480 ")) {
+            // IHAVE is unknown or not permitted for us
+            Log.get().log(Level.INFO, "{0} does not accept IHAVE, feeding with POST", host);
+            mode = Mode.POST;
+            return post(article);
+        } else if (!line.startsWith("335 ")) {
+            throw new IOException("IHAVE " + article.getMessageID() + " returned: " + line);
+        }
+
+        writeArticle(article);
+        out.flush();
+        line = readLine();
+        if (line.startsWith("235 ")) {
+            return Result.ACCEPTED;
+        } else if (line.startsWith("436 ")) {
+            return Result.DEFERRED;
+        } else if (line.startsWith("437 ")) {
+            return Result.REFUSED;
+        }
+        throw new IOException("IHAVE " + article.getMessageID() + " returned: " + line);
+    }
+
+    private Result post(Article article) throws IOException {
+        writeLine("POST");
+        out.flush();
+
+        String line = readLine();
+        if (!line.startsWith("340 ")) {
+            throw new IOException("POST returned: " + line);
+        }
+
+        writeArticle(article);
+        out.flush();
+        line = readLine();
+        if (line.startsWith("240 ")) {
+            return Result.ACCEPTED;
+        } else if (line.startsWith("441 ")) {
+            return Result.REFUSED;
+        }
+        throw new IOException("POST " + article.getMessageID() + " returned: " + line);
+    }
+
+    /**
+     * Writes the given article terminated by a dot line. The stored body is
+     * already in wire format.
+     */
+    private void writeArticle(Article article) throws IOException {
+        out.write(article.getHeaderSource().getBytes(StandardCharsets.UTF_8));
+        out.write("\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        if (article.getBody() != null) {
+            out.write(article.getBody());
+        }
+        out.write("\r\n.\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void writeLine(String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readLine() throws IOException {
+        String line = in.readLine();
+        if (line == null) {
+            throw new IOException("Connection closed by " + host);
+        }
+        return line;
+    }
+
+    /**
+     * Sends QUIT and closes the connection.
+     */
+    @Override
+    public void close() {
+        try {
+            writeLine("QUIT");
+            out.flush();
+        } catch (IOException ex) {
+            // The connection is closed anyway
+        }
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            Log.get().log(Level.FINE, "Closing connection to {0}: {1}",
+                    new Object[] { host, ex });
+        }
+    }
+}
@@ -18,227 +18,239 @@
 
 package org.sonews.feed;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.net.SocketException;
-import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.sonews.config.Config;
 import org.sonews.daemon.DaemonRunner;
-import org.sonews.storage.Storage;
 import org.sonews.storage.StorageBackendException;
 import org.sonews.storage.StorageManager;
 import org.sonews.util.Log;
-import org.sonews.util.io.ArticleTransmitter;
+import org.sonews.util.Pair;
 
 /**
  * The PullFeeder class regularily checks another Newsserver for new messages.
+ * The new articles are fetched and stored directly, see PullSession.
+ *
+ * Every subscription has its own PullSchedule. The groups of a peer that are
+ * due are pulled together on virtual threads, using at most
+ * sonews.feed.pullconnections connections to the peer, so that a slow peer
+ * does not delay the others.
+ *
+ * The high marks are kept in PullMarks and advanced after every batch of
+ * BATCH_SIZE articles, so an interrupted pull continues where it stopped.
+ * If an article could not be stored, the mark stops before it and the pull
+ * of the group ends, so the article is fetched again by the next pull.
  *
  * @author Christian Lins
  * @since sonews/0.5.0
  */
 class PullFeeder extends DaemonRunner {
 
-    private final Map<Subscription, Integer> highMarks = new HashMap<>();
-    private BufferedReader in;
-    private PrintWriter out;
-    private Socket socket;
-    private final Set<Subscription> subscriptions = new HashSet<>();
-
-    private void addSubscription(final Subscription sub) {
-        subscriptions.add(sub);
+    /** Maximum number of article numbers requested with one OVER command */
+    public static final int BATCH_SIZE = 1000;
 
-        if (!highMarks.containsKey(sub)) {
-            // Set a initial highMark
-            this.highMarks.put(sub, 0);
-        }
-    }
+    /** Shortest interval in which an active group is pulled */
+    private static final long MIN_INTERVAL = TimeUnit.MINUTES.toMillis(1);
 
-    /**
-     * Changes to the given group and returns its high mark.
-     *
-     * @param groupName
-     * @return
-     */
-    private int changeGroup(String groupName) throws IOException {
-        this.out.print("GROUP " + groupName + "\r\n");
-        this.out.flush();
-
-        String line = this.in.readLine();
-        if (line != null && line.startsWith("211 ")) {
-            int highmark = Integer.parseInt(line.split(" ")[3]);
-            return highmark;
-        } else {
-            throw new IOException("GROUP " + groupName + " returned: " + line);
-        }
-    }
+    private final Map<Subscription, PullSchedule> schedules = new ConcurrentHashMap<>();
+    private PullMarks marks;
 
-    private void connectTo(final String host, final int port)
-            throws IOException, UnknownHostException {
-        this.socket = new Socket(host, port);
-        this.out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
-        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+    /** Peers that are currently pulled, by host:port */
+    private final Set<String> busyPeers = ConcurrentHashMap.newKeySet();
 
-        String line = in.readLine();
-        if (line == null || !(line.charAt(0) == '2')) {
-            // Could be 200 or 2xx if posting is not allowed
-            throw new IOException(line);
-        }
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
-        // Send MODE READER to peer, some newsservers are friendlier then
-        this.out.print("MODE READER\r\n");
-        this.out.flush();
-        line = this.in.readLine();
-        if (line == null || !(line.charAt(0) == '2')) {
-            throw new IOException(line);
-        }
+    private static String peerKey(Subscription sub) {
+        return sub.getHost() + ":" + sub.getPort();
     }
 
-    private void disconnect() throws IOException {
-        this.out.print("QUIT\r\n");
-        this.out.flush();
-        this.out.close();
-        this.in.close();
-
-        this.out = null;
-        this.in = null;
+    /**
+     * Starts pulling the given due subscriptions of one peer.
+     */
+    private void pullPeer(String peer, List<Subscription> subs) {
+        int connections = Math.min(subs.size(),
+                Math.max(1, Config.inst().get(Config.FEED_PULLCONNECTIONS, 2)));
+        Log.get().log(Level.INFO, "Pulling {0} groups from {1} over {2} connections",
+                new Object[]{subs.size(), peer, connections});
 
-        this.socket.close();
-        this.socket = null;
+        busyPeers.add(peer);
+        Queue<Subscription> queue = new ConcurrentLinkedQueue<>(subs);
+        AtomicInteger running = new AtomicInteger(connections);
+        for (int n = 0; n < connections; n++) {
+            executor.execute(() -> {
+                try {
+                    pull(queue);
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        busyPeers.remove(peer);
+                        wakeup();
+                    }
+                }
+            });
+        }
     }
 
-    private static void getAndRepostArticle(
-            Storage storage, Subscription sub, String messageID) {
+    /**
+     * Pulls the subscriptions from the given queue over one connection until
+     * the queue is empty. If the connection fails, all remaining
+     * subscriptions are rescheduled.
+     */
+    private void pull(Queue<Subscription> queue) {
+        PullSession session = null;
         try {
-            if(storage.isArticleExisting(messageID)) {
-                return;
+            for (Subscription sub = queue.poll(); sub != null && daemon.isRunning();
+                    sub = queue.poll()) {
+                PullSchedule schedule = schedules.get(sub);
+                try {
+                    if (session == null) {
+                        session = new PullSession(sub.getHost(), sub.getPort());
+                    }
+                    pull(session, sub, schedule);
+                } catch (IOException ex) {
+                    // There may be a temporary network failure; the articles
+                    // are fetched again in the next run
+                    Log.get().log(Level.WARNING, "Pulling {0} from {1} failed: {2}",
+                            new Object[]{sub.getGroup(), sub.getHost(), ex});
+                    schedule.failed(System.currentTimeMillis());
+                    for (sub = queue.poll(); sub != null; sub = queue.poll()) {
+                        schedules.get(sub).failed(System.currentTimeMillis());
+                    }
+                    break;
+                }
+            }
+        } finally {
+            if (session != null) {
+                session.close();
             }
-            
-            ArticleTransmitter at = new ArticleTransmitter(
-                    sub.getGroup(), messageID);
-            at.transfer(sub.getHost(), 
-                        sub.getPort(), 
-                        "localhost", 
-                        Config.inst().get(Config.PORT, 119));
-        } catch (IOException ex) {
-            // There may be a temporary network failure
-            Log.get().log(Level.WARNING, 
-                    "Skipping message {0} due to exception: {1}",
-                    new Object[]{messageID, ex});
         }
     }
 
-    /**
-     * Uses the OVER or XOVER command to get a list of message overviews that
-     * may be unknown to this feeder and are about to be peered.
-     *
-     * @param start
-     * @param end
-     * @return A list of message ids with potentially interesting messages.
-     */
-    private List<String> over(int start, int end) throws IOException {
-        this.out.print("OVER " + start + "-" + end + "\r\n");
-        this.out.flush();
+    private void pull(PullSession session, Subscription sub, PullSchedule schedule)
+            throws IOException {
+        long mark = marks.get(sub);
+        PullSession.WaterMarks waterMarks = session.group(sub.getGroup());
+        if (waterMarks == null) {
+            Log.get().log(Level.WARNING, "{0} does not carry {1}",
+                    new Object[]{sub.getHost(), sub.getGroup()});
+            schedule.failed(System.currentTimeMillis());
+            return;
+        }
 
-        String line = this.in.readLine();
-        if (line == null) {
-            throw new IOException("Unexpected empty reply from remote host");
+        long newMark = waterMarks.high();
+        if (newMark < mark) {
+            // The group was renumbered at the peer, so fetch it from the
+            // start again; the articles already stored are skipped
+            mark = Math.max(waterMarks.low() - 1, 0);
+            marks.put(sub, mark);
         }
 
-        if (line.startsWith("500 ")) // OVER not supported
-        {
-            this.out.print("XOVER " + start + "-" + end + "\r\n");
-            this.out.flush();
+        int stored = 0;
+        int newArticles = 0;
+        long failed = -1;
+        while (mark < newMark && failed < 0 && daemon.isRunning()) {
+            long end = Math.min(mark + BATCH_SIZE, newMark);
+            List<Pair<Long, String>> articles = session.over(mark + 1, end);
+            PullSession.Fetched fetched = session.fetch(articles);
+            stored += fetched.stored();
+            newArticles += articles.size();
+            failed = fetched.failed();
 
-            line = this.in.readLine();
+            // Advance the mark past the stored, rejected and unavailable
+            // articles, but not past the first one that failed to store
+            mark = failed < 0 ? end : failed - 1;
+            marks.put(sub, mark);
         }
-
-        if (line.startsWith("224 ")) {
-            List<String> messages = new ArrayList<>();
-            line = this.in.readLine();
-            while (line != null && !line.equals(".")) {
-                String mid = line.split("\t")[4]; // 5th should be the
-                                                  // Message-ID
-                messages.add(mid);
-                line = this.in.readLine();
-            }
-            return messages;
+        if (newArticles > 0) {
+            Log.get().log(Level.INFO, "Stored {0} of {1} articles of {2} from {3}",
+                    new Object[]{stored, newArticles, sub.getGroup(), sub.getHost()});
+        }
+        if (failed < 0) {
+            schedule.pulled(System.currentTimeMillis(), newArticles);
         } else {
-            throw new IOException("Server return for OVER/XOVER: " + line);
+            Log.get().log(Level.WARNING, "Article {0} of {1} from {2} could not be stored, "
+                    + "retrying with the next pull",
+                    new Object[]{failed, sub.getGroup(), sub.getHost()});
+            schedule.failed(System.currentTimeMillis());
         }
     }
 
-    protected void pull(Subscription sub) {
-        String host = sub.getHost();
-        int port = sub.getPort();
+    private synchronized void wakeup() {
+        notifyAll();
+    }
 
+    @Override
+    public void run() {
+        Path file = Paths.get(Config.inst().get(Config.FEED_JOURNALDIR, "feed"), "pull.marks");
         try {
-            Log.get().log(
-                    Level.INFO, "Feeding {0} from {1}", new Object[]{sub.getGroup(), sub.getHost()});
-            try {
-                connectTo(host, port);
-            } catch (SocketException ex) {
-                Log.get().log(
-                        Level.INFO, "Skipping {0}: {1}", new Object[]{sub.getHost(), ex});
-            }
-
-            int oldMark = this.highMarks.get(sub);
-            int newMark = changeGroup(sub.getGroup());
-            Storage storage = StorageManager.current();
-            if (storage == null) {
-                Log.get().log(Level.SEVERE, "No storage available -> disable PullFeeder");
-                daemon.requestShutdown();
-                return;
-            }
-
-            if (oldMark != newMark) {
-                List<String> messageIDs = over(oldMark, newMark);
-                messageIDs.forEach(
-                        (msgID) -> getAndRepostArticle(storage, sub, msgID));
-                this.highMarks.put(sub, newMark);
-            }
-
-            disconnect();
-        } catch (StorageBackendException ex) {
-            ex.printStackTrace();
+            marks = new PullMarks(file);
         } catch (IOException ex) {
-            ex.printStackTrace();
-            Log.get().severe(
-                    "PullFeeder run stopped due to exception.");
+            Log.get().log(Level.SEVERE, "Pull high marks {0} not readable: {1}",
+                    new Object[]{file, ex});
+            return;
         }
-    }
-    
-    @Override
-    public void run() {
+
         while (daemon.isRunning()) {
-            int pullInterval = 1000 * Config.inst().get(
+            try {
+                if (StorageManager.current() == null) {
+                    Log.get().log(Level.SEVERE, "No storage available -> disable PullFeeder");
+                    daemon.requestShutdown();
+                    break;
+                }
+            } catch (StorageBackendException ex) {
+                Log.get().log(Level.WARNING, "PullFeeder: {0}", ex);
+            }
+
+            long maxInterval = 1000L * Config.inst().get(
                     Config.FEED_PULLINTERVAL, 3600);
+            long now = System.currentTimeMillis();
+            long nextPull = now + MIN_INTERVAL;
 
-            Log.get().info("Start PullFeeder run...");
-            this.subscriptions.clear();
-            Subscription.getAll().stream()
-                    .filter((sub) -> (sub.getFeedtype() == FeedManager.PULL))
-                    .forEach(this::addSubscription);
+            // Collect the due subscriptions of every idle peer
+            Map<String, List<Subscription>> due = new HashMap<>();
+            for (Subscription sub : Subscription.getAll()) {
+                if (sub.getFeedtype() != FeedManager.PULL || busyPeers.contains(peerKey(sub))) {
+                    continue;
+                }
+                PullSchedule schedule = schedules.computeIfAbsent(
+                        sub, s -> new PullSchedule(MIN_INTERVAL, maxInterval));
+                if (schedule.isDue(now)) {
+                    due.computeIfAbsent(peerKey(sub), k -> new ArrayList<>()).add(sub);
+                } else {
+                    nextPull = Math.min(nextPull, schedule.getNextPull());
+                }
+            }
+            due.forEach(this::pullPeer);
 
             try {
-                this.subscriptions.forEach(this::pull);
-                Log.get().log(Level.INFO, "PullFeeder run ended. Waiting {0}ms", pullInterval);
-                Thread.sleep(pullInterval);
+                synchronized (this) {
+                    // Woken up early when a peer is finished
+                    wait(Math.max(nextPull - now, 1000));
+                }
             } catch (InterruptedException ex) {
                 Log.get().warning(ex.getMessage());
             }
         }
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void dispose() {
+        wakeup();
     }
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.feed;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Article numbers up to which the PULL subscriptions have been fetched, kept
+ * in a state file so that a restart does not fetch every group from the
+ * start again. Every line of the file holds host:port, group name and high
+ * mark of one subscription.
+ *
+ * The file is rewritten on every change by writing a temporary file and
+ * renaming it, so it is never left half written.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+final class PullMarks {
+
+    private final Path file;
+    private final Path tmpFile;
+    private final Map<String, Long> marks = new TreeMap<>();
+    /** Guards marks and the file; held during file I/O, so no monitor */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Reads the high marks from the given file if it exists.
+     *
+     * @param file
+     * @throws IOException
+     */
+    PullMarks(Path file) throws IOException {
+        this.file = file;
+        this.tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length == 3 && fields[2].matches("[0-9]+")) {
+                    // Other lines are ignored; the group is then fetched from
+                    // the start again
+                    marks.put(key(fields[0], fields[1]), Long.parseLong(fields[2]));
+                }
+            }
+        }
+    }
+
+    private static String key(String peer, String group) {
+        return peer + " " + group;
+    }
+
+    private static String key(Subscription sub) {
+        return key(sub.getHost() + ":" + sub.getPort(), sub.getGroup());
+    }
+
+    /**
+     * @param sub
+     * @return The high mark of the given subscription, 0 if it was never
+     *         pulled.
+     */
+    long get(Subscription sub) {
+        lock.lock();
+        try {
+            return marks.getOrDefault(key(sub), 0L);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the high mark of the given subscription and writes the file.
+     *
+     * @param sub
+     * @param highMark
+     * @throws IOException
+     */
+    void put(Subscription sub, long highMark) throws IOException {
+        lock.lock();
+        try {
+            marks.put(key(sub), highMark);
+
+            StringBuilder buf = new StringBuilder();
+            for (Map.Entry<String, Long> entry : marks.entrySet()) {
+                buf.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+            }
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Files.writeString(tmpFile, buf, StandardCharsets.UTF_8);
+            Files.move(tmpFile, file,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
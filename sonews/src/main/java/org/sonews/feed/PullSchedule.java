@@ -0,0 +1,94 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.feed;
+
+/**
+ * Pull schedule of a subscription. The interval between two pulls halves
+ * every time the peer had new articles in the group and doubles every time
+ * it had none, so active groups are pulled often and quiet groups rarely.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+final class PullSchedule {
+
+    private final long minInterval;
+    private final long maxInterval;
+    private long interval;
+    private long nextPull = 0;
+
+    /**
+     * Creates a schedule that is due immediately.
+     *
+     * @param minInterval Shortest interval in milliseconds.
+     * @param maxInterval Longest interval in milliseconds.
+     */
+    PullSchedule(long minInterval, long maxInterval) {
+        this.minInterval = Math.min(minInterval, maxInterval);
+        this.maxInterval = maxInterval;
+        this.interval = this.minInterval;
+    }
+
+    /**
+     * @param now Current time in milliseconds.
+     * @return true if the subscription should be pulled.
+     */
+    synchronized boolean isDue(long now) {
+        return now >= nextPull;
+    }
+
+    /**
+     * @return Time in milliseconds of the next pull.
+     */
+    synchronized long getNextPull() {
+        return nextPull;
+    }
+
+    /**
+     * @return Current interval in milliseconds.
+     */
+    synchronized long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Records a successful pull and schedules the next one.
+     *
+     * @param now Current time in milliseconds.
+     * @param newArticles Number of new articles the peer had.
+     */
+    synchronized void pulled(long now, int newArticles) {
+        if (newArticles > 0) {
+            interval = Math.max(interval / 2, minInterval);
+        } else {
+            interval = Math.min(interval * 2, maxInterval);
+        }
+        nextPull = now + interval;
+    }
+
+    /**
+     * Schedules the next attempt after a failed pull without changing the
+     * interval.
+     *
+     * @param now Current time in milliseconds.
+     */
+    synchronized void failed(long now) {
+        nextPull = now + interval;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.feed;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.sonews.util.Log;
+import org.sonews.util.Pair;
+import org.sonews.util.io.ArticleBuffer;
+
+/**
+ * Reader connection to a peer used by the PullFeeder. The articles are
+ * requested with pipelined ARTICLE commands and stored directly through
+ * PeerIngest, without passing them through our own NNTP server.
+ *
+ * The connection is read as ISO-8859-1, so that every byte of an article is
+ * kept as it is, whatever charset it uses.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+class PullSession implements Closeable {
+
+    /**
+     * Outcome of fetching a list of articles.
+     *
+     * @param stored Number of stored articles.
+     * @param failed Lowest number of an article that could not be stored
+     *        and has to be fetched again, or -1.
+     */
+    record Fetched(int stored, long failed) {
+    }
+
+    /**
+     * Water marks of a group at the peer, as returned by GROUP.
+     *
+     * @param low Low water mark.
+     * @param high High water mark.
+     */
+    record WaterMarks(long low, long high) {
+    }
+
+    /** Maximum number of ARTICLE commands sent before reading the responses */
+    static final int PIPELINE_DEPTH = 32;
+
+    private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+    private static final int READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(120);
+
+    private final String host;
+    private final Socket socket;
+    private final OutputStream out;
+    private final BufferedReader in;
+
+    /**
+     * Connects to the given peer and switches to reader mode.
+     *
+     * @param host
+     * @param port
+     * @throws IOException
+     */
+    PullSession(String host, int port) throws IOException {
+        this.host = host;
+        this.socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+            socket.setSoTimeout(READ_TIMEOUT);
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            this.in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.ISO_8859_1));
+
+            String line = readLine();
+            if (line.charAt(0) != '2') {
+                // Could be 200 or 2xx if posting is not allowed
+                throw new IOException("Invalid hello from " + host + ": " + line);
+            }
+
+            // Send MODE READER to peer, some newsservers are friendlier then
+            command("MODE READER");
+            line = readLine();
+            if (line.charAt(0) != '2') {
+                throw new IOException("MODE READER returned: " + line);
+            }
+        } catch (IOException ex) {
+            socket.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Changes to the given group and returns its water marks.
+     *
+     * @param groupName
+     * @return The water marks or null if the peer does not carry the group.
+     * @throws IOException
+     */
+    WaterMarks group(String groupName) throws IOException {
+        command("GROUP " + groupName);
+        String line = readLine();
+        if (line.startsWith("211 ")) {
+            String[] fields = line.split(" ");
+            return new WaterMarks(Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+        } else if (line.startsWith("411 ")) {
+            return null;
+        }
+        throw new IOException("GROUP " + groupName + " returned: " + line);
+    }
+
+    /**
+     * Uses the OVER or XOVER command to get a list of message overviews that
+     * may be unknown to this feeder and are about to be peered.
+     *
+     * @param start
+     * @param end
+     * @return Article numbers and Message-IDs of potentially interesting
+     *         messages, ordered by article number.
+     * @throws IOException
+     */
+    List<Pair<Long, String>> over(long start, long end) throws IOException {
+        command("OVER " + start + "-" + end);
+        String line = readLine();
+        if (line.startsWith("500 ")) {
+            // OVER not supported
+            command("XOVER " + start + "-" + end);
+            line = readLine();
+        }
+
+        List<Pair<Long, String>> articles = new ArrayList<>();
+        if (line.startsWith("423 ")) {
+            // No articles in that range
+            return articles;
+        } else if (!line.startsWith("224 ")) {
+            throw new IOException("OVER/XOVER returned: " + line);
+        }
+
+        for (line = readLine(); !line.equals("."); line = readLine()) {
+            String[] fields = line.split("\t");
+            if (fields.length > 4 && fields[0].matches("[0-9]+")) {
+                // 1st is the article number, 5th should be the Message-ID
+                articles.add(new Pair<>(Long.parseLong(fields[0]), fields[4]));
+            }
+        }
+        return articles;
+    }
+
+    /**
+     * Fetches the given articles and stores the ones that are neither stored
+     * nor transferred by another peer yet.
+     *
+     * @param articles Article numbers and Message-IDs as returned by over().
+     * @return
+     * @throws IOException
+     */
+    Fetched fetch(List<Pair<Long, String>> articles) throws IOException {
+        Fetched fetched = new Fetched(0, -1);
+        List<Pair<Long, String>> pending = new ArrayList<>(PIPELINE_DEPTH);
+        for (Pair<Long, String> article : articles) {
+            String messageID = article.getB();
+            if (!PeerIngest.isExisting(messageID) && PeerIngest.claim(messageID)) {
+                pending.add(article);
+            }
+            if (pending.size() == PIPELINE_DEPTH) {
+                fetched = fetchPipelined(pending, fetched);
+                pending.clear();
+            }
+        }
+        return fetchPipelined(pending, fetched);
+    }
+
+    private Fetched fetchPipelined(List<Pair<Long, String>> articles,
+            Fetched fetched) throws IOException {
+        if (articles.isEmpty()) {
+            return fetched;
+        }
+
+        int stored = fetched.stored();
+        long failed = fetched.failed();
+        int n = 0;
+        try {
+            for (Pair<Long, String> article : articles) {
+                writeLine("ARTICLE " + article.getB());
+            }
+            out.flush();
+
+            for (; n < articles.size(); n++) {
+                String messageID = articles.get(n).getB();
+                String line = readLine();
+                if (!line.startsWith("220 ")) {
+                    // Article was removed in the meantime
+                    Log.get().log(Level.FINE, "ARTICLE {0} returned: {1}",
+                            new Object[] { messageID, line });
+                    PeerIngest.release(messageID);
+                    continue;
+                }
+
+                ArticleBuffer buffer = new ArticleBuffer();
+                byte[] raw;
+                do {
+                    raw = readLine().getBytes(StandardCharsets.ISO_8859_1);
+                } while (!buffer.add(raw, 0, raw.length));
+
+                switch (PeerIngest.store(messageID, buffer)) {
+                    case STORED -> stored++;
+                    case FAILED -> {
+                        long number = articles.get(n).getA();
+                        if (failed < 0 || number < failed) {
+                            failed = number;
+                        }
+                    }
+                    case REJECTED -> {
+                        // Not wanted, never fetched again
+                    }
+                }
+                PeerIngest.release(messageID);
+            }
+        } finally {
+            // Release the claims of the articles not received
+            for (; n < articles.size(); n++) {
+                PeerIngest.release(articles.get(n).getB());
+            }
+        }
+        return new Fetched(stored, failed);
+    }
+
+    private void command(String command) throws IOException {
+        writeLine(command);
+        out.flush();
+    }
+
+    private void writeLine(String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readLine() throws IOException {
+        String line = in.readLine();
+        if (line == null) {
+            throw new IOException("Connection closed by " + host);
+        }
+        return line;
+    }
+
+    /**
+     * Sends QUIT and closes the connection.
+     */
+    @Override
+    public void close() {
+        try {
+            command("QUIT");
+        } catch (IOException ex) {
+            // The connection is closed anyway
+        }
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            Log.get().log(Level.FINE, "Closing connection to {0}: {1}",
+                    new Object[] { host, ex });
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /*
  *   SONEWS News Server
- *   Copyright (C) 2009-2015  Christian Lins <christian@lins.me>
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
  *
  *   This program is free software: you can redistribute it and/or modify
  *   it under the terms of the GNU General Public License as published by
@@ -19,92 +19,176 @@
 package org.sonews.feed;
 
 import java.io.IOException;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
+import org.sonews.config.Config;
 import org.sonews.daemon.DaemonRunner;
 
 import org.sonews.storage.Article;
 import org.sonews.storage.Headers;
+import org.sonews.storage.StorageManager;
 import org.sonews.util.Log;
-import org.sonews.util.io.ArticleWriter;
 
 /**
- * Pushes new articles to remote newsservers. This feeder sleeps until a new
- * message is posted to the sonews instance.
+ * Pushes new articles to a single remote newsserver. The Message-IDs of the
+ * articles are queued in a FeedJournal, so posting never waits for the peer
+ * and queued articles survive a restart. Every peer has its own PushFeeder,
+ * so a slow or unreachable peer does not delay the others. Failed transfers
+ * and batches the peer deferred completely are retried with exponential
+ * backoff.
+ *
+ * The articles are sent in batches over a PeerSession that is kept open
+ * while there is something to send.
  *
  * @author Christian Lins
  * @since sonews/0.5.0
  */
 class PushFeeder extends DaemonRunner {
 
-    // TODO Make configurable
-    public static final int QUEUE_SIZE = 128;
+    /** Maximum number of articles sent between two journal commits */
+    public static final int BATCH_SIZE = 100;
+
+    private static final long MIN_BACKOFF = TimeUnit.SECONDS.toMillis(1);
+
+    /** Time after which an unused session is closed */
+    private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toNanos(60);
 
-    private final LinkedBlockingQueue<Article> articleQueue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+    private final String host;
+    private final int port;
+    private final FeedJournal journal;
+    private PeerSession session;
+
+    PushFeeder(String host, int port) throws IOException {
+        this.host = host;
+        this.port = port;
+        this.journal = new FeedJournal(
+                Paths.get(Config.inst().get(Config.FEED_JOURNALDIR, "feed")),
+                host + "_" + port);
+    }
 
     @Override
     public void run() {
+        this.daemon.setName("PushFeeder " + host);
+
+        long backoff = 0;
         while (daemon.isRunning()) {
             try {
-                Article article = this.articleQueue.take();
-                String[] newsgroupsHeader = article.getHeader(Headers.NEWSGROUPS);
-                if (newsgroupsHeader == null) {
-                    Log.get().warning("Article has no newsgroups header(s). Skipping.");
+                List<FeedJournal.Entry> entries = journal.read(BATCH_SIZE, 1000);
+                if (entries.isEmpty()) {
+                    if (session != null && session.idleTime() > IDLE_TIMEOUT) {
+                        session.close();
+                        session = null;
+                    }
                     continue;
                 }
 
-                String[] groups = newsgroupsHeader[0].split(",");
-
-                Log.get().log(Level.INFO, "PushFeed: {0}", article.getMessageID());
-                
-                Subscription.getAll().stream()
-                        .filter(sub -> (sub.getFeedtype() == FeedManager.PUSH))
-                        .forEach(sub -> push(article, groups, sub));
-                
+                try {
+                    if (push(entries)) {
+                        backoff = 0;
+                    } else {
+                        // The peer deferred the whole batch
+                        backoff = nextBackoff(backoff);
+                        Thread.sleep(backoff);
+                    }
+                } catch (IOException ex) {
+                    if (session != null) {
+                        session.close();
+                        session = null;
+                    }
+                    backoff = nextBackoff(backoff);
+                    Log.get().log(Level.WARNING,
+                            "Pushing to {0} failed, {1} bytes queued, retry in {2}ms: {3}",
+                            new Object[] { host, journal.backlog(), backoff, ex });
+                    Thread.sleep(backoff);
+                }
+            } catch (IOException ex) {
+                Log.get().log(Level.SEVERE, "Feed journal of {0} not readable: {1}",
+                        new Object[] { host, ex });
+                return;
             } catch (InterruptedException ex) {
                 Log.get().log(Level.WARNING, "PushFeeder interrupted: {0}", ex);
             }
         }
+
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    /**
+     * @param backoff Current backoff in milliseconds, 0 after progress.
+     * @return Doubled backoff, at least MIN_BACKOFF and at most
+     *         sonews.feed.retrymax seconds.
+     */
+    private static long nextBackoff(long backoff) {
+        long maxBackoff = TimeUnit.SECONDS.toMillis(
+                Config.inst().get(Config.FEED_RETRYMAX, 600));
+        return Math.min(Math.max(backoff * 2, MIN_BACKOFF), maxBackoff);
     }
-    
-    protected void push(Article article, String[] groups, Subscription sub) {
-        // Circle check
-        if (article.getHeader(Headers.PATH)[0].contains(sub.getHost())) {
-            Log.get().log(
-                    Level.INFO, "{0} skipped for host {1}",
-                    new Object[]{article.getMessageID(), sub.getHost()});
-            return;
+
+    /**
+     * Sends the articles of the given entries and moves the journal cursor
+     * behind them. Articles the peer deferred are queued again.
+     *
+     * @return false if the peer deferred all articles.
+     */
+    private boolean push(List<FeedJournal.Entry> entries) throws IOException {
+        List<Article> articles = new ArrayList<>(entries.size());
+        for (FeedJournal.Entry entry : entries) {
+            Article article = StorageManager.current().getArticle(entry.messageID());
+            if (article == null) {
+                Log.get().log(Level.INFO, "{0} no longer exists, not pushed to {1}",
+                        new Object[] { entry.messageID(), host });
+                continue;
+            }
+
+            // Delete headers that may cause problems
+            article.removeHeader(Headers.NNTP_POSTING_DATE);
+            article.removeHeader(Headers.NNTP_POSTING_HOST);
+            article.removeHeader(Headers.X_COMPLAINTS_TO);
+            article.removeHeader(Headers.X_TRACE);
+            article.removeHeader(Headers.XREF);
+            articles.add(article);
         }
 
-        try {
-            for (String group : groups) {
-                if (sub.getGroup().equals(group)) {
-                    // Delete headers that may cause problems
-                    article.removeHeader(Headers.NNTP_POSTING_DATE);
-                    article.removeHeader(Headers.NNTP_POSTING_HOST);
-                    article.removeHeader(Headers.X_COMPLAINTS_TO);
-                    article.removeHeader(Headers.X_TRACE);
-                    article.removeHeader(Headers.XREF);
-
-                    // POST the message to remote server
-                    ArticleWriter awriter = new ArticleWriter(
-                            sub.getHost(), sub.getPort());
-                    awriter.writeArticle(article);
-                    break;
+        int deferred = 0;
+        if (!articles.isEmpty()) {
+            if (session == null) {
+                session = new PeerSession(host, port);
+            }
+            List<PeerSession.Result> results = session.send(articles);
+            for (int n = 0; n < articles.size(); n++) {
+                if (results.get(n) == PeerSession.Result.DEFERRED) {
+                    journal.append(articles.get(n).getMessageID());
+                    deferred++;
                 }
             }
-        } catch (IOException ex) {
-            Log.get().warning(ex.toString());
+            Log.get().log(Level.FINE, "PushFeed: {0} articles offered to {1}, {2} deferred",
+                    new Object[] { articles.size(), host, deferred });
         }
+        journal.commit(entries.get(entries.size() - 1));
+        return articles.isEmpty() || deferred < articles.size();
     }
 
+    /**
+     * Queues the given article for this peer. Returns immediately.
+     *
+     * @param article
+     */
     public void queueForPush(Article article) {
         try {
-            // If queue is full, this call blocks until the queue has free space;
-            // This is probably a bottleneck for article posting
-            this.articleQueue.put(article);
-        } catch (InterruptedException ex) {
-            Log.get().log(Level.WARNING, null, ex);
+            journal.append(article.getMessageID());
+        } catch (IOException ex) {
+            Log.get().log(Level.SEVERE, "Could not queue {0} for {1}: {2}",
+                    new Object[] { article.getMessageID(), host, ex });
         }
     }
+
+    @Override
+    public void dispose() {
+        journal.wakeup();
+    }
 }
@@ -18,6 +18,7 @@
 
 package org.sonews.storage;
 
+import java.io.IOException;
 import java.util.Enumeration;
 import java.util.List;
 
@@ -39,6 +40,20 @@ public interface Article {
      */
     byte[] getBody();
 
+    /**
+     * Returns the body as a region that can be written to a client without
+     * copying it. The default implementation wraps the array returned by
+     * getBody(); backends that keep the body outside the heap should
+     * override this method.
+     *
+     * @return Body region or null if only headers were fetched from backend.
+     * @throws java.io.IOException
+     */
+    default BodyRegion getBodyRegion() throws IOException {
+        byte[] body = getBody();
+        return body == null ? null : new ByteArrayBodyRegion(body);
+    }
+
     /**
      * @return List of newsgroups this ArticleImpl belongs to.
      */
@@ -0,0 +1,65 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Readable byte region holding the body of an article as it is stored, i.e.
+ * ready to be sent to a client. A BodyRegion allows the connection layer to
+ * write the body directly to the socket without decoding or copying it.
+ * The region must be closed after it was transmitted.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ * @see ByteArrayBodyRegion
+ * @see FileBodyRegion
+ */
+public interface BodyRegion extends Closeable {
+
+    /**
+     * @return Size of the region in bytes.
+     */
+    long size();
+
+    /**
+     * Transfers bytes of this region to the given channel. This method has
+     * the semantics of FileChannel.transferTo(), i.e. fewer bytes than
+     * requested may be transferred if the channel is non-blocking.
+     *
+     * @param position Position within the region to start at.
+     * @param count Maximum number of bytes to transfer.
+     * @param target
+     * @return Number of bytes actually transferred.
+     * @throws IOException
+     */
+    long transferTo(long position, long count, WritableByteChannel target)
+            throws IOException;
+
+    /**
+     * Writes the whole region to the given stream.
+     *
+     * @param out
+     * @throws IOException
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,66 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * BodyRegion backed by a byte array, used by backends that load the whole
+ * body into memory anyway (e.g. JDBC). The array is not copied.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+public class ByteArrayBodyRegion implements BodyRegion {
+
+    private final byte[] body;
+
+    public ByteArrayBodyRegion(byte[] body) {
+        if (body == null) {
+            throw new IllegalArgumentException("body is null");
+        }
+        this.body = body;
+    }
+
+    @Override
+    public long size() {
+        return body.length;
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target)
+            throws IOException {
+        int off = (int) Math.min(position, body.length);
+        int len = (int) Math.min(count, body.length - off);
+        return target.write(ByteBuffer.wrap(body, off, len));
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(body);
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BodyRegion referring to a part of a file, intended for file based storage
+ * backends. The data is transferred with FileChannel.transferTo(), so the
+ * operating system can send it to a socket without copying it through
+ * the Java heap.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+public class FileBodyRegion implements BodyRegion {
+
+    private final FileChannel channel;
+    private final long offset;
+    private final long length;
+
+    /**
+     * Opens the given file for reading.
+     *
+     * @param file
+     * @param offset Start of the body within the file.
+     * @param length Length of the body in bytes.
+     * @throws IOException
+     */
+    public FileBodyRegion(Path file, long offset, long length) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public long size() {
+        return length;
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target)
+            throws IOException {
+        count = Math.min(count, length - position);
+        if (count <= 0) {
+            return 0;
+        }
+        return channel.transferTo(offset + position, count, target);
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = 0;
+        while (position < length) {
+            long num = transferTo(position, length - position, target);
+            if (num <= 0) {
+                throw new IOException("File truncated while reading body");
+            }
+            position += num;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -77,7 +77,7 @@ public class Group {
     private static Group parseGroup(String str) {
         str = str.trim();
         String[] groupLineChunks = str.split("\\s+");
-        if (groupLineChunks.length != 3) {
+        if (groupLineChunks.length != 3 && groupLineChunks.length != 4) {
             Log.get().log(Level.WARNING, "Malformed group.conf line: {0}", str);
             return null;
         } else {
@@ -86,6 +86,9 @@ public class Group {
                     groupLineChunks[0],
                     Long.parseLong(groupLineChunks[1]),
                     Integer.parseInt(groupLineChunks[2]));
+            if (groupLineChunks.length == 4) {
+                group.retention = Integer.parseInt(groupLineChunks[3]);
+            }
             return group;
         }
     }
@@ -128,6 +131,7 @@ public class Group {
     private long id = 0;
     private int flags = -1;
     private String name = null;
+    private int retention = -1;
 
     /**
      * Constructor.
@@ -171,11 +175,20 @@ public class Group {
         return StorageManager.current().getArticleHeads(this, first, last);
     }
 
+    public List<Pair<Long, String>> getOverview(final long first,
+            final long last) throws StorageBackendException {
+        return StorageManager.current().getOverview(this, first, last);
+    }
+
     public List<Long> getArticleNumbers() throws StorageBackendException {
         return StorageManager.current().getArticleNumbers(id);
     }
 
     public long getFirstArticleNumber() throws StorageBackendException {
+        GroupStatistics.Entry stats = GroupStatistics.getInstance().get(this);
+        if (stats != null) {
+            return stats.first();
+        }
         return StorageManager.current().getFirstArticleNumber(this);
     }
 
@@ -208,6 +221,10 @@ public class Group {
     }
 
     public long getLastArticleNumber() throws StorageBackendException {
+        GroupStatistics.Entry stats = GroupStatistics.getInstance().get(this);
+        if (stats != null) {
+            return stats.last();
+        }
         return StorageManager.current().getLastArticleNumber(this);
     }
 
@@ -215,6 +232,14 @@ public class Group {
         return name;
     }
 
+    /**
+     * @return Number of days articles are kept in this group or -1 if the
+     *         global sonews.storage.article.lifetime applies.
+     */
+    public int getRetention() {
+        return retention;
+    }
+
     /**
      * Performs this.flags |= flag to set a specified flag and updates the data
      * in the JDBCDatabase.
@@ -238,6 +263,10 @@ public class Group {
      * @throws StorageBackendException
      */
     public long getPostingsCount() throws StorageBackendException {
+        GroupStatistics.Entry stats = GroupStatistics.getInstance().get(this);
+        if (stats != null) {
+            return stats.count();
+        }
         return StorageManager.current().getPostingsCount(this.name);
     }
 
@@ -0,0 +1,245 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import org.sonews.config.Config;
+import org.sonews.daemon.DaemonRunner;
+import org.sonews.util.Log;
+
+/**
+ * Keeps the number of articles and the low and high water marks of every
+ * group in memory, so that GROUP and LIST ACTIVE do not query the storage.
+ *
+ * The statistics are loaded in bulk when the daemon starts and reloaded
+ * every sonews.groupstats.interval seconds. In between, every stored article
+ * increments the count and high water mark of its groups. Deletions only
+ * trigger an early reload: until then the count is overestimated and the low
+ * water mark may be too low, both of which RFC 3977 permits.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+public final class GroupStatistics extends DaemonRunner {
+
+    /**
+     * Statistics of a single group.
+     */
+    public record Entry(long count, long first, long last) {
+    }
+
+    private static final Entry EMPTY = new Entry(0, 0, 0);
+
+    /** Minimum time between two reloads triggered by deletions */
+    private static final long MIN_RELOAD_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    private static final GroupStatistics instance = new GroupStatistics();
+
+    /**
+     * @return Active GroupStatistics instance.
+     */
+    public static GroupStatistics getInstance() {
+        return instance;
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private volatile boolean loaded = false;
+    private boolean dirty = false;
+
+    /** Articles added per group while a reload is running */
+    private Map<Long, Long> pending = null;
+
+    GroupStatistics() {
+    }
+
+    /**
+     * @return true if the statistics have been loaded and are kept up to
+     *         date.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return true if the daemon is running and changes to the storage must
+     *         be reported.
+     */
+    boolean isRunning() {
+        return daemon != null && daemon.isRunning();
+    }
+
+    /**
+     * @param group
+     * @return The statistics of the given group or null if they are not
+     *         loaded.
+     */
+    public Entry get(Group group) {
+        if (!loaded) {
+            return null;
+        }
+        return entries.getOrDefault(group.getInternalID(), EMPTY);
+    }
+
+    /**
+     * Accounts for an article that was stored in the given group.
+     *
+     * @param group
+     */
+    void added(Group group) {
+        long id = group.getInternalID();
+        lock.lock();
+        try {
+            Entry e = entries.get(id);
+            if (e == null) {
+                // The group was not loaded, so its high water mark is unknown
+                entries.put(id, new Entry(1, 1, 1));
+                invalidate();
+            } else if (e.count() == 0) {
+                entries.put(id, new Entry(1, e.last() + 1, e.last() + 1));
+            } else {
+                entries.put(id, new Entry(e.count() + 1, e.first(), e.last() + 1));
+            }
+            if (pending != null) {
+                pending.merge(id, 1L, Long::sum);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the statistics of a purged group.
+     *
+     * @param group
+     */
+    void removed(Group group) {
+        entries.remove(group.getInternalID());
+    }
+
+    /**
+     * Requests a reload, e.g. after articles have been deleted.
+     */
+    void invalidate() {
+        lock.lock();
+        try {
+            dirty = true;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a reload. Articles added until reloaded() is called are
+     * counted on top of the loaded statistics.
+     */
+    void reloading() {
+        lock.lock();
+        try {
+            pending = new HashMap<>();
+            dirty = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the statistics with the given ones. Articles added during the
+     * reload may or may not be contained in them, so they are added to the
+     * count, which may overestimate it until the next reload. The high water
+     * mark never decreases.
+     *
+     * @param stats Statistics of all non-empty groups by internal ID.
+     */
+    void reloaded(Map<Long, Entry> stats) {
+        lock.lock();
+        try {
+            Map<Long, Entry> merged = new HashMap<>(stats);
+            for (var p : pending.entrySet()) {
+                Entry current = entries.getOrDefault(p.getKey(), EMPTY);
+                Entry loadedEntry = merged.getOrDefault(p.getKey(), EMPTY);
+                merged.put(p.getKey(), new Entry(
+                        loadedEntry.count() + p.getValue(),
+                        loadedEntry.count() > 0 ? loadedEntry.first() : current.first(),
+                        Math.max(loadedEntry.last(), current.last())));
+            }
+            pending = null;
+
+            entries.keySet().retainAll(merged.keySet());
+            entries.putAll(merged);
+            loaded = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        this.daemon.setName("GroupStatistics");
+
+        while (daemon.isRunning()) {
+            long lastReload = System.nanoTime();
+            try {
+                reloading();
+                reloaded(StorageManager.current().getGroupStatistics());
+                Log.get().log(Level.FINE, "Group statistics of {0} groups loaded",
+                        entries.size());
+            } catch (StorageBackendException | RuntimeException ex) {
+                Log.get().log(Level.WARNING, "Could not load group statistics: {0}", ex);
+                lock.lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            try {
+                long interval = TimeUnit.SECONDS.toNanos(
+                        Config.inst().get(Config.GROUPSTATS_INTERVAL, 60));
+                lock.lock();
+                try {
+                    long remaining = lastReload + interval - System.nanoTime();
+                    while (remaining > 0 && !dirty && daemon.isRunning()) {
+                        remaining = changed.awaitNanos(remaining);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                // Deletions usually come in bursts, e.g. from the Purger
+                long sinceReload = System.nanoTime() - lastReload;
+                if (sinceReload < MIN_RELOAD_INTERVAL) {
+                    TimeUnit.NANOSECONDS.sleep(MIN_RELOAD_INTERVAL - sinceReload);
+                }
+            } catch (InterruptedException ex) {
+                Log.get().info("GroupStatistics interrupted");
+                return;
+            }
+        }
+    }
+}
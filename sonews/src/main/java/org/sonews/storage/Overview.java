@@ -0,0 +1,97 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage;
+
+/**
+ * Renders the overview fields of an article as returned by the OVER command
+ * (RFC 3977 section 8.3): Subject, From, Date, Message-ID, References, Bytes,
+ * Lines and Xref, separated by tabs. The article number is not part of the
+ * rendered fields as it differs between the groups of a crosspost.
+ *
+ * Storage backends may store the rendered fields when an article is added,
+ * so that OVER does not need to parse the headers again.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+public final class Overview {
+
+    /**
+     * Renders the overview fields of the given article.
+     *
+     * @param art
+     * @return Tab-separated overview fields without article number.
+     */
+    public static String format(Article art) {
+        StringBuilder overview = new StringBuilder();
+
+        String subject = art.getHeader(Headers.SUBJECT)[0];
+        if ("".equals(subject)) {
+            subject = "<empty>";
+        }
+        overview.append(escape(subject));
+        overview.append('\t');
+
+        overview.append(escape(art.getHeader(Headers.FROM)[0]));
+        overview.append('\t');
+        overview.append(escape(art.getHeader(Headers.DATE)[0]));
+        overview.append('\t');
+        overview.append(escape(art.getHeader(Headers.MESSAGE_ID)[0]));
+        overview.append('\t');
+        overview.append(escape(art.getHeader(Headers.REFERENCES)[0]));
+        overview.append('\t');
+
+        String bytes = art.getHeader(Headers.BYTES)[0];
+        if ("".equals(bytes)) {
+            bytes = "0";
+        }
+        overview.append(escape(bytes));
+        overview.append('\t');
+
+        String lines = art.getHeader(Headers.LINES)[0];
+        if ("".equals(lines)) {
+            lines = "0";
+        }
+        overview.append(escape(lines));
+        overview.append('\t');
+        overview.append(escape(art.getHeader(Headers.XREF)[0]));
+
+        // Remove trailing tabs if some data is empty
+        return overview.toString().trim();
+    }
+
+    /**
+     * @param nr Article number.
+     * @param fields Overview fields as returned by format().
+     * @return Overview line as sent to the client.
+     */
+    public static String line(long nr, String fields) {
+        return nr + "\t" + fields;
+    }
+
+    private static String escape(String str) {
+        String nstr = str.replace("\r", "");
+        nstr = nstr.replace('\n', ' ');
+        nstr = nstr.replace('\t', ' ');
+        return nstr.trim();
+    }
+
+    private Overview() {
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+/**
+ * Dynamic proxy reporting the changes made through a Storage to the
+ * GroupStatistics.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+class StatisticsStorage implements InvocationHandler {
+
+    /**
+     * @param storage
+     * @param stats
+     * @return Proxy for the given Storage updating the given statistics.
+     */
+    static Storage wrap(Storage storage, GroupStatistics stats) {
+        return (Storage) Proxy.newProxyInstance(Storage.class.getClassLoader(),
+                new Class<?>[] { Storage.class }, new StatisticsStorage(storage, stats));
+    }
+
+    private final Storage storage;
+    private final GroupStatistics stats;
+
+    private StatisticsStorage(Storage storage, GroupStatistics stats) {
+        this.storage = storage;
+        this.stats = stats;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Object result;
+        try {
+            result = method.invoke(storage, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+
+        switch (method.getName()) {
+            case "addArticle" -> added((Article) args[0]);
+            case "addArticles" -> {
+                for (Object article : (List<?>) args[0]) {
+                    added((Article) article);
+                }
+            }
+            case "delete", "expire", "dropGroup", "update" -> stats.invalidate();
+            case "purgeGroup" -> stats.removed((Group) args[0]);
+            default -> {
+            }
+        }
+        return result;
+    }
+
+    private void added(Article article) {
+        for (Group group : article.getGroups()) {
+            stats.added(group);
+        }
+    }
+}
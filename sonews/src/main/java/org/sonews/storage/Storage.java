@@ -17,7 +17,10 @@
  */
 package org.sonews.storage;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.sonews.util.Pair;
 
 /**
@@ -36,6 +39,20 @@ public interface Storage {
      */
     void addArticle(Article art) throws StorageBackendException;
 
+    /**
+     * Stores the given Articles. Backends may store them in a single
+     * transaction, in which case either all or none of the articles are
+     * stored. The default implementation calls addArticle() for each article.
+     *
+     * @param arts
+     * @throws StorageBackendException
+     */
+    default void addArticles(List<Article> arts) throws StorageBackendException {
+        for (Article art : arts) {
+            addArticle(art);
+        }
+    }
+
     int countArticles() throws StorageBackendException;
 
     void createOrUpdateGroup(Group group) throws StorageBackendException;
@@ -50,10 +67,93 @@ public interface Storage {
     List<Pair<Long, Article>> getArticleHeads(Group group, long first,
             long last) throws StorageBackendException;
 
+    /**
+     * Removes up to limit articles that arrived before the given time from
+     * the given group. Articles that are not posted to any other group are
+     * deleted. Backends without arrival times do nothing.
+     *
+     * @param group
+     * @param arrivedBefore Arrival time in milliseconds since the epoch.
+     * @param limit Maximum number of articles removed with this call.
+     * @return Number of articles removed from the group.
+     * @throws StorageBackendException
+     */
+    default int expire(Group group, long arrivedBefore, int limit)
+            throws StorageBackendException {
+        return 0;
+    }
+
+    /**
+     * Removes up to limit articles from the given group, which is about to
+     * be purged. Articles that are not posted to any other group are deleted.
+     * The default implementation deletes the articles one by one.
+     *
+     * @param group
+     * @param limit Maximum number of articles removed with this call.
+     * @return Number of articles removed from the group; 0 if the group is
+     *         empty.
+     * @throws StorageBackendException
+     */
+    default int dropGroup(Group group, int limit) throws StorageBackendException {
+        List<Long> numbers = getArticleNumbers(group.getInternalID());
+        int removed = 0;
+        for (int n = 0; n < numbers.size() && removed < limit; n++) {
+            Article art = getArticle(numbers.get(n), group.getInternalID());
+            if (art != null) {
+                delete(art.getMessageID());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @param keep
+     * @return Arrival time of the oldest of the keep newest articles, or -1
+     *         if there are not more than keep articles or the backend does
+     *         not store arrival times.
+     * @throws StorageBackendException
+     */
+    default long getArrivalCutoff(long keep) throws StorageBackendException {
+        return -1;
+    }
+
+    /**
+     * Returns the values of the given header of the articles in the given
+     * range that match the given wildmat (see org.sonews.util.Wildmat).
+     *
+     * @param group
+     * @param start
+     * @param end Last article number or -1 for no upper bound.
+     * @param header
+     * @param pattern
+     * @return Pairs of article number and header value.
+     * @throws StorageBackendException
+     */
     List<Pair<Long, String>> getArticleHeaders(Group group, long start,
             long end, String header, String pattern)
             throws StorageBackendException;
 
+    /**
+     * Returns the overview fields (see Overview.format()) of the articles in
+     * the given range, ordered by article number. The default implementation
+     * renders them from the article heads.
+     *
+     * @param group
+     * @param first
+     * @param last
+     * @return
+     * @throws StorageBackendException
+     */
+    default List<Pair<Long, String>> getOverview(Group group, long first,
+            long last) throws StorageBackendException {
+        List<Pair<Long, String>> overviews = new ArrayList<>();
+        for (Pair<Long, Article> head : getArticleHeads(group, first, last)) {
+            overviews.add(new Pair<>(head.getA(), Overview.format(head.getB())));
+        }
+        return overviews;
+    }
+
     long getArticleIndex(Article art, Group group)
             throws StorageBackendException;
 
@@ -67,6 +167,29 @@ public interface Storage {
 
     List<Group> getGroups() throws StorageBackendException;
 
+    /**
+     * Returns the number of articles and the low and high water marks of
+     * every group, used to load the GroupStatistics. The high water mark is
+     * the last article number assigned in the group, even if that article
+     * has expired, as the next article gets the number above it. Groups
+     * without articles may be omitted. The default implementation queries
+     * each group separately.
+     *
+     * @return Statistics by internal group ID.
+     * @throws StorageBackendException
+     */
+    default Map<Long, GroupStatistics.Entry> getGroupStatistics()
+            throws StorageBackendException {
+        Map<Long, GroupStatistics.Entry> stats = new HashMap<>();
+        for (Group group : Group.getAll()) {
+            stats.put(group.getInternalID(), new GroupStatistics.Entry(
+                    getPostingsCount(group.getName()),
+                    getFirstArticleNumber(group),
+                    getLastArticleNumber(group)));
+        }
+        return stats;
+    }
+
     int getPostingsCount(String groupname) throws StorageBackendException;
 
     boolean isArticleExisting(String messageID) throws StorageBackendException;
@@ -79,6 +202,19 @@ public interface Storage {
      */
     void purgeGroup(Group group) throws StorageBackendException;
 
+    /**
+     * Recreates the stored overview records of the given group from the
+     * article headers, e.g. for articles stored by an older version. Backends
+     * that render the overview on request do nothing.
+     *
+     * @param group
+     * @return Number of overview records written.
+     * @throws StorageBackendException
+     */
+    default int rebuildOverview(Group group) throws StorageBackendException {
+        return 0;
+    }
+
     /**
      * Updates headers and group references of the given article.
      *
@@ -19,6 +19,7 @@
 package org.sonews.storage;
 
 import java.io.IOException;
+import java.util.function.LongConsumer;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 
@@ -30,7 +31,17 @@ import javax.mail.MessagingException;
  */
 public class StorageManager {
 
-    private static StorageProvider provider;
+    /**
+     * A storage of the provider together with the proxies wrapped around it,
+     * so that they are not created again on every call of current().
+     */
+    private record Wrapped(Storage storage, boolean statistics,
+            LongConsumer listener, Storage wrapped) {
+    }
+
+    private static volatile StorageProvider provider;
+    private static volatile LongConsumer latencyListener;
+    private static volatile Wrapped lastWrapped;
 
     // FIXME Is this the right place for factory methods?
     public static Article createArticle() {
@@ -46,15 +57,50 @@ public class StorageManager {
     }
 
     public static Storage current() throws StorageBackendException {
-        synchronized (StorageManager.class) {
-            if (provider == null) {
+        // No monitor here, it would pin the carrier of a virtual thread
+        // while the provider blocks
+        StorageProvider prov = provider;
+        if (prov == null) {
+            return null;
+        } else {
+            Storage storage = prov.storage(Thread.currentThread());
+            if (storage == null) {
                 return null;
-            } else {
-                return provider.storage(Thread.currentThread());
             }
+
+            // Providers usually return the same instance for every thread,
+            // e.g. the JDBC connection pool; then the proxies are reused
+            GroupStatistics stats = GroupStatistics.getInstance();
+            boolean statistics = stats.isRunning();
+            LongConsumer listener = latencyListener;
+            Wrapped last = lastWrapped;
+            if (last != null && last.storage() == storage
+                    && last.statistics() == statistics && last.listener() == listener) {
+                return last.wrapped();
+            }
+
+            Storage wrapped = storage;
+            if (statistics) {
+                wrapped = StatisticsStorage.wrap(wrapped, stats);
+            }
+            if (listener != null) {
+                wrapped = TimedStorage.wrap(wrapped, listener);
+            }
+            lastWrapped = new Wrapped(storage, statistics, listener, wrapped);
+            return wrapped;
         }
     }
 
+    /**
+     * Sets a listener that is notified of the duration of every call to the
+     * Storage instances returned by current().
+     *
+     * @param listener Receives the call durations in nanoseconds, may be null.
+     */
+    public static void setLatencyListener(LongConsumer listener) {
+        latencyListener = listener;
+    }
+
     public static void dispose() {
         provider.dispose();
     }
@@ -65,20 +111,15 @@ public class StorageManager {
      * @param provider
      */
     public static void enableProvider(StorageProvider provider) {
-        synchronized (StorageManager.class) {
-            if (StorageManager.provider != null) {
-                disableProvider();
-            }
-            StorageManager.provider = provider;
-        }
+        StorageManager.provider = provider;
+        lastWrapped = null;
     }
 
     /**
      * Disables the current provider.
      */
     public static void disableProvider() {
-        synchronized (StorageManager.class) {
-            provider = null;
-        }
+        provider = null;
+        lastWrapped = null;
     }
 }
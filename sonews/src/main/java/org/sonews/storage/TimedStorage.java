@@ -0,0 +1,70 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.LongConsumer;
+
+/**
+ * Dynamic proxy measuring the duration of every call to a Storage. The
+ * durations are passed to a listener in nanoseconds.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+class TimedStorage implements InvocationHandler {
+
+    /**
+     * @param storage
+     * @param listener
+     * @return Proxy for the given Storage reporting the call durations to the
+     *         given listener.
+     */
+    static Storage wrap(Storage storage, LongConsumer listener) {
+        return (Storage) Proxy.newProxyInstance(Storage.class.getClassLoader(),
+                new Class<?>[] { Storage.class }, new TimedStorage(storage, listener));
+    }
+
+    private final Storage storage;
+    private final LongConsumer listener;
+
+    private TimedStorage(Storage storage, LongConsumer listener) {
+        this.storage = storage;
+        this.listener = listener;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(storage, args);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return method.invoke(storage, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        } finally {
+            listener.accept(System.nanoTime() - start);
+        }
+    }
+}
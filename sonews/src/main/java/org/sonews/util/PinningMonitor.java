@@ -0,0 +1,115 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.sonews.daemon.DaemonRunner;
+
+/**
+ * Diagnostic daemon reporting virtual threads that pin their carrier thread,
+ * e.g. by blocking inside a synchronized block. The pinning events are
+ * recorded with JFR and attributed to the outermost storage method on the
+ * stack; the statistics are logged every minute. Enabled with the
+ * -debug-pinning command line argument.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+public class PinningMonitor extends DaemonRunner {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final long REPORT_INTERVAL = 60 * 1000;
+
+    private record Stats(LongAdder count, LongAdder nanos) {
+    }
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    @SuppressWarnings("SleepWhileInLoop")
+    public void run() {
+        this.daemon.setName("PinningMonitor");
+
+        try (var stream = new RecordingStream()) {
+            stream.enable(EVENT).withThreshold(Duration.ofMillis(1)).withStackTrace();
+            stream.onEvent(EVENT, this::pinned);
+            stream.startAsync();
+            Log.get().info("Reporting virtual thread pinning");
+
+            while (daemon.isRunning()) {
+                Thread.sleep(REPORT_INTERVAL);
+                report();
+            }
+        } catch (InterruptedException ex) {
+            Log.get().info("PinningMonitor interrupted");
+        }
+    }
+
+    private void pinned(RecordedEvent event) {
+        var s = stats.computeIfAbsent(getLocation(event),
+                k -> new Stats(new LongAdder(), new LongAdder()));
+        s.count().increment();
+        s.nanos().add(event.getDuration().toNanos());
+    }
+
+    /**
+     * @param event
+     * @return The outermost method of a storage class on the stack of the
+     *         given event, or the topmost frame if there is none.
+     */
+    private String getLocation(RecordedEvent event) {
+        var stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "<unknown>";
+        }
+
+        String location = null;
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith("org.sonews.storage.")
+                    && !type.equals("org.sonews.storage.TimedStorage")
+                    && !type.equals("org.sonews.storage.StorageManager")) {
+                location = type + "." + frame.getMethod().getName();
+            }
+        }
+        if (location == null) {
+            var top = stackTrace.getFrames().get(0).getMethod();
+            location = top.getType().getName() + "." + top.getName();
+        }
+        return location;
+    }
+
+    private void report() {
+        stats.forEach((location, s) -> {
+            long count = s.count().sumThenReset();
+            long millis = s.nanos().sumThenReset() / 1000000;
+            if (count > 0) {
+                Log.get().log(Level.WARNING, "Pinned {0} times for {1} ms in {2}",
+                        new Object[] { count, millis, location });
+            }
+        });
+    }
+}
@@ -17,16 +17,13 @@
  */
 package org.sonews.util;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import org.sonews.config.Config;
 import org.sonews.daemon.DaemonRunnable;
 import org.sonews.daemon.DaemonRunner;
-import org.sonews.storage.Article;
 import org.sonews.storage.Group;
-import org.sonews.storage.Headers;
 import org.sonews.storage.StorageBackendException;
 import org.sonews.storage.StorageManager;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,6 +41,9 @@ import org.springframework.stereotype.Component;
 @Component
 public class Purger extends DaemonRunner implements DaemonRunnable {
 
+    /** Interval of the progress messages while a group is purged */
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(30);
+
     @Autowired
     private Log logger;
 
@@ -67,12 +67,24 @@ public class Purger extends DaemonRunner implements DaemonRunnable {
         }
     }
 
+    /**
+     * Waits as long as the last batch took, so that the purger occupies a
+     * database connection at most half of the time and does not starve the
+     * clients.
+     *
+     * @param batchStart Start of the last batch as returned by System.nanoTime().
+     * @throws InterruptedException
+     */
+    private void throttle(long batchStart) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(System.nanoTime() - batchStart);
+    }
+
     /**
      * Purge messages from storage backend that have been marked as deleted.
      *
      * @throws StorageBackendException
      */
-    private void purgeDeleted() throws StorageBackendException {
+    private void purgeDeleted() throws InterruptedException, StorageBackendException {
         List<Group> groups = Group.getAll();
         if (groups == null) {
             logger.warning("No groups?");
@@ -82,63 +94,91 @@ public class Purger extends DaemonRunner implements DaemonRunnable {
         for (Group group : groups) {
             // Look for groups that are marked as deleted
             if (group.isDeleted()) {
-                List<Long> ids = StorageManager.current().getArticleNumbers(group.getInternalID());
-                if (ids.isEmpty()) {
-                    StorageManager.current().purgeGroup(group);
-                    logger.log(Level.INFO, "Group {0} purged.", group.getName());
-                }
-
-                for (int n = 0; n < ids.size() && n < 10; n++) {
-                    Article art = StorageManager.current().getArticle(ids.get(n), group.getInternalID());
-                    if (art != null) {
-                        StorageManager.current().delete(art.getMessageID());
-                        logger.log(Level.INFO, "Article {0} purged.", art.getMessageID());
-                    }
-                }
+                dropGroup(group);
             }
         }
     }
 
     /**
-     * Purge messages that are older then the given treshold.
+     * Removes all articles of the given deleted group in batches of
+     * sonews.purger.batchsize and then the group itself.
      *
+     * @param group
      * @throws InterruptedException
      * @throws StorageBackendException
      */
+    private void dropGroup(Group group) throws InterruptedException, StorageBackendException {
+        var storage = StorageManager.current();
+        var batchSize = Config.inst().get(Config.PURGER_BATCHSIZE, 500);
+        long removed = 0;
+        long lastReport = System.nanoTime();
+
+        int n;
+        do {
+            long batchStart = System.nanoTime();
+            n = storage.dropGroup(group, batchSize);
+            removed += n;
+
+            if (System.nanoTime() - lastReport > PROGRESS_INTERVAL) {
+                logger.log(Level.INFO, "Purging group {0}: {1} articles removed",
+                        new Object[] { group.getName(), removed });
+                lastReport = System.nanoTime();
+            }
+            throttle(batchStart);
+        } while (n > 0 && daemon.isRunning());
+
+        if (n == 0) {
+            storage.purgeGroup(group);
+            logger.log(Level.INFO, "Group {0} purged, {1} articles removed.",
+                    new Object[] { group.getName(), removed });
+        }
+    }
+
+    /**
+     * Expires the articles whose arrival time exceeds the retention of their
+     * group (sonews.storage.article.lifetime or the override in groups.conf)
+     * or that are beyond the sonews.storage.article.maxnum newest articles.
+     * The articles are removed in batches of sonews.purger.batchsize, each
+     * in its own transaction, so that the tables are not locked for long.
+     *
+     * @throws StorageBackendException
+     */
     private void purgeOutdated() throws InterruptedException, StorageBackendException {
-        var smgr = StorageManager.current();
+        var storage = StorageManager.current();
         var articleMaximum = Config.inst().get(Config.STORAGE_ARTICLE_MAXNUM, Long.MAX_VALUE);
         var lifetime = Config.inst().get(Config.STORAGE_ARTICLE_LIFETIME, -1);
+        var batchSize = Config.inst().get(Config.PURGER_BATCHSIZE, 500);
+        long now = System.currentTimeMillis();
+
+        // Articles that arrived before this time exceed the maximum number
+        long maxCutoff = articleMaximum < Long.MAX_VALUE
+                ? storage.getArrivalCutoff(articleMaximum) : -1;
 
-        if (lifetime > 0 || articleMaximum < smgr.countArticles()) {
-            boolean purged = false;
+        for (Group group : Group.getAll()) {
+            if (group.isDeleted()) {
+                continue;
+            }
+
+            int retention = group.getRetention() >= 0 ? group.getRetention() : lifetime;
+            long cutoff = retention > 0 ? now - TimeUnit.DAYS.toMillis(retention) : -1;
+            cutoff = Math.max(cutoff, maxCutoff);
+            if (cutoff < 0) {
+                continue;
+            }
+
+            int expired = 0;
+            int n;
             do {
-                logger.info("Purging old messages...");
-                String mid = smgr.getOldestArticle();
-                if (mid == null) { // No articles in the database
-                    return;
-                }
-
-                Article art = smgr.getArticle(mid);
-                if (art == null) {
-                    logger.log(Level.WARNING, "Could not retrieve or delete article: {0}", mid);
-                    return;
-                }
-
-                String dateStr = art.getHeader(Headers.DATE)[0];
-
-                var articleDate = LocalDateTime.parse(
-                        dateStr, DateTimeFormatter.RFC_1123_DATE_TIME);
-                var lifeTimeThreshold = LocalDateTime.now().minusDays(lifetime);
-
-                // Should we delete the message because of its age or because the
-                // article maximum was reached?
-                if (lifetime < 0 || articleDate.isBefore(lifeTimeThreshold)) {
-                    smgr.delete(mid);
-                    logger.log(Level.INFO, "Deleted: {0}", mid);
-                    purged = true;
-                }
-            } while (purged);
+                long batchStart = System.nanoTime();
+                n = storage.expire(group, cutoff, batchSize);
+                expired += n;
+                throttle(batchStart);
+            } while (n >= batchSize && daemon.isRunning());
+
+            if (expired > 0) {
+                logger.log(Level.INFO, "Expired {0} articles in {1}",
+                        new Object[] { expired, group.getName() });
+            }
         }
     }
 }
@@ -0,0 +1,206 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A wildmat as used by XPAT and RFC 3977 section 4: a comma separated list of
+ * patterns, each optionally negated with a leading '!'. The rightmost
+ * pattern that matches a string decides; if it is negated, the string does
+ * not match. Within a pattern '*' matches any sequence, '?' any single
+ * character, '[...]' a character class and '\' quotes the next character.
+ *
+ * Simple wildmats can be translated to an SQL LIKE pattern, so that the
+ * database can filter the values instead of the server.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+public final class Wildmat {
+
+    /** Escape character used in the patterns returned by toLike() */
+    public static final char LIKE_ESCAPE = '!';
+
+    private record Item(boolean negated, String pattern, Pattern regex) {
+    }
+
+    private final String wildmat;
+    private final List<Item> items = new ArrayList<>();
+
+    /**
+     * @param wildmat
+     * @throws PatternSyntaxException If the wildmat is malformed.
+     */
+    public Wildmat(String wildmat) {
+        this.wildmat = wildmat;
+        for (String pattern : split(wildmat)) {
+            boolean negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1);
+            }
+            items.add(new Item(negated, pattern, Pattern.compile(toRegex(pattern))));
+        }
+    }
+
+    /**
+     * @param value
+     * @return true if the given value matches this wildmat.
+     */
+    public boolean matches(String value) {
+        for (int n = items.size() - 1; n >= 0; n--) {
+            Item item = items.get(n);
+            if (item.regex().matcher(value).matches()) {
+                return !item.negated();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Translates this wildmat to an SQL LIKE pattern using LIKE_ESCAPE as
+     * escape character. Only a single, not negated pattern without character
+     * classes can be translated.
+     *
+     * @return The LIKE pattern or null if the wildmat cannot be expressed
+     *         with LIKE.
+     */
+    public String toLike() {
+        if (items.size() != 1 || items.get(0).negated()) {
+            return null;
+        }
+
+        String pattern = items.get(0).pattern();
+        StringBuilder like = new StringBuilder();
+        for (int n = 0; n < pattern.length(); n++) {
+            char c = pattern.charAt(n);
+            switch (c) {
+                case '*' -> like.append('%');
+                case '?' -> like.append('_');
+                case '[' -> {
+                    return null;
+                }
+                case '\\' -> {
+                    c = pattern.charAt(++n);
+                    appendLikeLiteral(like, c);
+                }
+                default -> appendLikeLiteral(like, c);
+            }
+        }
+        return like.toString();
+    }
+
+    @Override
+    public String toString() {
+        return wildmat;
+    }
+
+    private static void appendLikeLiteral(StringBuilder like, char c) {
+        if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+            like.append(LIKE_ESCAPE);
+        }
+        like.append(c);
+    }
+
+    /**
+     * Splits the wildmat at commas that are neither quoted nor part of a
+     * character class.
+     */
+    private static List<String> split(String wildmat) {
+        List<String> patterns = new ArrayList<>();
+        int begin = 0;
+        boolean inClass = false;
+        for (int n = 0; n < wildmat.length(); n++) {
+            char c = wildmat.charAt(n);
+            if (c == '\\') {
+                n++;
+                if (n >= wildmat.length()) {
+                    throw new PatternSyntaxException("Trailing backslash", wildmat, n - 1);
+                }
+            } else if (c == '[' && !inClass) {
+                inClass = true;
+                // A ']' directly after '[' or '[^' is part of the class
+                if (n + 1 < wildmat.length() && wildmat.charAt(n + 1) == '^') {
+                    n++;
+                }
+                if (n + 1 < wildmat.length() && wildmat.charAt(n + 1) == ']') {
+                    n++;
+                }
+            } else if (c == ']') {
+                inClass = false;
+            } else if (c == ',' && !inClass) {
+                patterns.add(wildmat.substring(begin, n));
+                begin = n + 1;
+            }
+        }
+        if (inClass) {
+            throw new PatternSyntaxException("Unclosed character class", wildmat, wildmat.length());
+        }
+        patterns.add(wildmat.substring(begin));
+        return patterns;
+    }
+
+    private static String toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (int n = 0; n < pattern.length(); n++) {
+            char c = pattern.charAt(n);
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                case '\\' -> appendRegexLiteral(regex, pattern.charAt(++n));
+                case '[' -> {
+                    regex.append('[');
+                    n++;
+                    if (pattern.charAt(n) == '^') {
+                        regex.append('^');
+                        n++;
+                    }
+                    boolean first = true;
+                    for (; pattern.charAt(n) != ']' || first; n++) {
+                        char cc = pattern.charAt(n);
+                        boolean quoted = cc == '\\';
+                        if (quoted) {
+                            cc = pattern.charAt(++n);
+                        }
+                        if (cc == '-' && !quoted && !first && pattern.charAt(n + 1) != ']') {
+                            regex.append('-');
+                        } else {
+                            appendRegexLiteral(regex, cc);
+                        }
+                        first = false;
+                    }
+                    regex.append(']');
+                }
+                default -> appendRegexLiteral(regex, c);
+            }
+        }
+        return regex.toString();
+    }
+
+    private static void appendRegexLiteral(StringBuilder regex, char c) {
+        if (Character.isLetterOrDigit(c) || c == ' ') {
+            regex.append(c);
+        } else {
+            regex.append('\\').append(c);
+        }
+    }
+}
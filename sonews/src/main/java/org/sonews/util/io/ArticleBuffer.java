@@ -0,0 +1,118 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.util.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetHeaders;
+import org.sonews.config.Config;
+import org.sonews.daemon.NNTPConnection;
+import org.sonews.storage.Article;
+import org.sonews.storage.Headers;
+import org.sonews.storage.StorageManager;
+
+/**
+ * Collects the lines of an article sent by a peer, e.g. with IHAVE or in
+ * response to ARTICLE, up to the terminating dot line. Lines beyond the
+ * maximum article size are counted but not kept, as the peer sends them
+ * anyway.
+ *
+ * @author Christian Lins
+ * @since sonews/2.1
+ */
+public final class ArticleBuffer {
+
+    private static final byte[] NEWLINE = NNTPConnection.NEWLINE.getBytes(StandardCharsets.US_ASCII);
+
+    // Size in kbytes, default is 128k
+    private final long maxBodySize = Config.inst().get(Config.ARTICLE_MAXSIZE, 128) * 1024L;
+
+    private final ByteArrayOutputStream bufHead = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream bufBody = new ByteArrayOutputStream();
+    private boolean readingBody = false;
+    private int lineCount = 0;
+    private long bodySize = 0;
+
+    /**
+     * Adds the given line, given without line terminator.
+     *
+     * @param buf
+     * @param off
+     * @param len
+     * @return true if the line was the terminating dot line.
+     */
+    public boolean add(byte[] buf, int off, int len) {
+        if (len == 1 && buf[off] == '.') {
+            return true;
+        }
+
+        if (!readingBody) {
+            if (len == 0) {
+                // The blank line separating headers from body
+                readingBody = true;
+            } else {
+                bufHead.write(buf, off, len);
+                bufHead.write(NEWLINE, 0, NEWLINE.length);
+            }
+        } else {
+            bodySize += len + 1;
+            lineCount++;
+            if (!isTooLong()) {
+                bufBody.write(buf, off, len);
+                bufBody.write(NEWLINE, 0, NEWLINE.length);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the article exceeds sonews.article.maxsize.
+     */
+    public boolean isTooLong() {
+        return bodySize > maxBodySize;
+    }
+
+    /**
+     * Creates the article from the collected lines and sets the Lines and
+     * Bytes headers needed for the OVER command, like POST does.
+     *
+     * @return
+     * @throws MessagingException If the headers are malformed.
+     */
+    public Article toArticle() throws MessagingException {
+        InternetHeaders headers = new InternetHeaders(
+                new ByteArrayInputStream(bufHead.toByteArray()));
+        headers.setHeader(Headers.LINES, Integer.toString(lineCount));
+        headers.setHeader(Headers.BYTES, Long.toString(bodySize));
+
+        Article article = StorageManager.createArticle();
+        article.setHeaders(headers);
+
+        byte[] body = bufBody.toByteArray();
+        if (body.length >= 2) {
+            // Remove trailing CRLF
+            body = Arrays.copyOf(body, body.length - 2);
+        }
+        article.setBody(body);
+        return article;
+    }
+}
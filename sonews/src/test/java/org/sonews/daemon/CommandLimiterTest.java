@@ -0,0 +1,89 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for class org.sonews.daemon.CommandLimiter.
+ *
+ * @author Christian Lins
+ * @see org.sonews.daemon.CommandLimiter
+ * @since sonews/2.1
+ */
+public class CommandLimiterTest extends TestCase {
+
+    public void testRejectAtLimit() {
+        var limiter = new CommandLimiter(4, 4, 0);
+        for (int n = 0; n < 4; n++) {
+            assertTrue(limiter.acquire());
+        }
+        assertFalse(limiter.acquire());
+
+        limiter.release();
+        assertTrue(limiter.acquire());
+        assertEquals(4, limiter.getInFlight());
+    }
+
+    public void testGrowWhileLatencyIsStable() {
+        var limiter = new CommandLimiter(4, 100, 0, 0);
+        int initial = limiter.getLimit();
+        while (limiter.acquire()) {
+            // Saturate the limiter
+        }
+        for (int n = 0; n < 50; n++) {
+            limiter.sample(1000000);
+        }
+        assertTrue(limiter.getLimit() > initial);
+    }
+
+    public void testNoGrowthWhileIdle() {
+        var limiter = new CommandLimiter(4, 100, 0, 0);
+        int initial = limiter.getLimit();
+        for (int n = 0; n < 50; n++) {
+            limiter.sample(1000000);
+        }
+        assertEquals(initial, limiter.getLimit());
+    }
+
+    public void testUpdateAtMostOncePerInterval() {
+        var limiter = new CommandLimiter(4, 100, 0, Long.MAX_VALUE);
+        int initial = limiter.getLimit();
+        while (limiter.acquire()) {
+            // Saturate the limiter
+        }
+        for (int n = 0; n < 50; n++) {
+            limiter.sample(1000000);
+        }
+        assertEquals(initial, limiter.getLimit());
+    }
+
+    public void testShrinkWhenLatencyRises() {
+        var limiter = new CommandLimiter(4, 100, 0, 0);
+        int initial = limiter.getLimit();
+        for (int n = 0; n < 100; n++) {
+            limiter.sample(1000000);
+        }
+        for (int n = 0; n < 100; n++) {
+            limiter.sample(10000000);
+        }
+        assertTrue(limiter.getLimit() < initial);
+        assertTrue(limiter.getLimit() >= 4);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for class org.sonews.daemon.TimingWheel.
+ *
+ * @author Christian Lins
+ * @see org.sonews.daemon.TimingWheel
+ * @since sonews/2.1
+ */
+public class TimingWheelTest extends TestCase {
+
+    private final List<String> expired = new ArrayList<>();
+
+    public void testExpiry() {
+        var wheel = new TimingWheel<String>(8, 1000, 0);
+        wheel.schedule("a", 3000);
+        wheel.schedule("b", 5000);
+
+        wheel.advance(2999, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(3000, expired::add);
+        assertEquals(List.of("a"), expired);
+
+        wheel.advance(10000, expired::add);
+        assertEquals(List.of("a", "b"), expired);
+    }
+
+    public void testPastDeadline() {
+        var wheel = new TimingWheel<String>(8, 1000, 5000);
+        wheel.schedule("a", 1000);
+
+        wheel.advance(5999, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(6000, expired::add);
+        assertEquals(List.of("a"), expired);
+    }
+
+    public void testLaterRevolution() {
+        var wheel = new TimingWheel<String>(4, 1000, 0);
+        wheel.schedule("a", 10000); // Same slot as tick 2 and 6
+
+        wheel.advance(9000, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(10000, expired::add);
+        assertEquals(List.of("a"), expired);
+    }
+
+    public void testRescheduleFromConsumer() {
+        var wheel = new TimingWheel<String>(4, 1000, 0);
+        wheel.schedule("a", 1000);
+
+        wheel.advance(1000, item -> {
+            expired.add(item);
+            wheel.schedule(item, 2000);
+        });
+        assertEquals(List.of("a"), expired);
+
+        wheel.advance(2000, expired::add);
+        assertEquals(List.of("a", "a"), expired);
+    }
+}
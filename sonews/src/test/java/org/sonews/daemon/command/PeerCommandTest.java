@@ -0,0 +1,293 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon.command;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.sonews.auth.User;
+import org.sonews.config.Config;
+import org.sonews.daemon.NNTPConnection;
+import org.sonews.feed.PeerIngest;
+import org.sonews.storage.Article;
+import org.sonews.storage.BodyRegion;
+import org.sonews.storage.Group;
+import org.sonews.storage.Storage;
+import org.sonews.storage.StorageManager;
+import org.sonews.storage.StorageProvider;
+import org.sonews.util.Log;
+
+/**
+ * Unit test for the peering commands CHECK, IHAVE and TAKETHIS. The commands
+ * are run on a connection that records the responses; the storage only
+ * knows which articles exist.
+ *
+ * @author Christian Lins
+ * @see org.sonews.daemon.command.CheckCommand
+ * @see org.sonews.daemon.command.IHaveCommand
+ * @see org.sonews.daemon.command.TakeThisCommand
+ * @since sonews/2.1
+ */
+public class PeerCommandTest extends TestCase {
+
+    /**
+     * Connection recording the response lines.
+     */
+    private static class RecordingConnection implements NNTPConnection {
+
+        final List<String> responses = new ArrayList<>();
+        boolean failing = false;
+
+        @Override
+        public void beginResponse() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void endResponse() {
+        }
+
+        @Override
+        public Article getCurrentArticle() {
+            return null;
+        }
+
+        @Override
+        public Charset getCurrentCharset() {
+            return StandardCharsets.UTF_8;
+        }
+
+        @Override
+        public Group getCurrentGroup() {
+            return null;
+        }
+
+        @Override
+        public long getLastActivity() {
+            return 0;
+        }
+
+        @Override
+        public SocketChannel getSocketChannel() {
+            return null;
+        }
+
+        @Override
+        public User getUser() {
+            return null;
+        }
+
+        @Override
+        public boolean isCommandPending() {
+            return false;
+        }
+
+        @Override
+        public void println(byte[] line) {
+            println(new String(line, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void println(CharSequence line) {
+            if (failing) {
+                throw new UncheckedIOException(new IOException("Connection reset"));
+            }
+            responses.add(line.toString());
+        }
+
+        @Override
+        public void setCurrentArticle(Article art) {
+        }
+
+        @Override
+        public void setCurrentGroup(Group group) {
+        }
+
+        @Override
+        public void setLastActivity(long time) {
+        }
+
+        @Override
+        public void setUser(User user) {
+        }
+
+        @Override
+        public void write(BodyRegion region) {
+        }
+    }
+
+    private final Set<String> existing = new HashSet<>();
+    private RecordingConnection conn;
+
+    @Override
+    protected void setUp() throws Exception {
+        if (Log.get() == null) {
+            // Keep the config file of the working directory untouched
+            Path config = Files.createTempFile("sonews", ".conf");
+            Config.inst().set(Config.LEVEL_CLI, Config.CONFIGFILE, config.toString());
+            new Log();
+            Files.delete(config);
+        }
+
+        Storage storage = (Storage) Proxy.newProxyInstance(
+                Storage.class.getClassLoader(), new Class<?>[] { Storage.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("isArticleExisting")) {
+                        return existing.contains((String) args[0]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        StorageManager.enableProvider(new StorageProvider() {
+            @Override
+            public boolean isSupported(String uri) {
+                return true;
+            }
+
+            @Override
+            public Storage storage(Thread thread) {
+                return storage;
+            }
+
+            @Override
+            public void dispose() {
+            }
+        });
+        conn = new RecordingConnection();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        StorageManager.disableProvider();
+    }
+
+    private static void process(Command command, NNTPConnection conn,
+            String... lines) throws Exception {
+        for (String line : lines) {
+            byte[] raw = line.getBytes(StandardCharsets.UTF_8);
+            command.processLine(conn, raw, 0, raw.length);
+        }
+    }
+
+    public void testCheck() throws Exception {
+        existing.add("<1@example.org>");
+        assertTrue(PeerIngest.claim("<2@example.org>"));
+        try {
+            CheckCommand check = new CheckCommand();
+            process(check, conn, "CHECK <1@example.org>", "CHECK <2@example.org>",
+                    "CHECK <3@example.org>", "CHECK 3@example.org");
+            assertEquals(List.of("438 <1@example.org>", "431 <2@example.org>",
+                    "238 <3@example.org>", "501 syntax error"), conn.responses);
+
+            assertEquals("431 <4@example.org>", check.busyResponse("CHECK <4@example.org>"));
+        } finally {
+            PeerIngest.release("<2@example.org>");
+        }
+    }
+
+    public void testTakeThisInvalid() throws Exception {
+        TakeThisCommand takeThis = new TakeThisCommand();
+        process(takeThis, conn, "TAKETHIS 1@example.org",
+                "Message-ID: <1@example.org>", "", "CHECK <2@example.org>");
+        assertFalse(takeThis.hasFinished());
+        assertEquals(List.of(), conn.responses);
+
+        process(takeThis, conn, ".");
+        assertTrue(takeThis.hasFinished());
+        assertEquals(List.of("501 syntax error"), conn.responses);
+        assertFalse(PeerIngest.isInFlight("1@example.org"));
+    }
+
+    public void testTakeThisClaimed() throws Exception {
+        assertTrue(PeerIngest.claim("<1@example.org>"));
+        try {
+            TakeThisCommand takeThis = new TakeThisCommand();
+            process(takeThis, conn, "TAKETHIS <1@example.org>",
+                    "Message-ID: <1@example.org>", "", "Body");
+            assertFalse(takeThis.hasFinished());
+
+            process(takeThis, conn, ".");
+            assertTrue(takeThis.hasFinished());
+            assertEquals(List.of("439 <1@example.org>"), conn.responses);
+
+            // The claim of the other peer is kept
+            assertTrue(PeerIngest.isInFlight("<1@example.org>"));
+        } finally {
+            PeerIngest.release("<1@example.org>");
+        }
+    }
+
+    public void testIhaveRefused() throws Exception {
+        existing.add("<1@example.org>");
+        assertTrue(PeerIngest.claim("<2@example.org>"));
+        try {
+            process(new IHaveCommand(), conn, "IHAVE <1@example.org>");
+            process(new IHaveCommand(), conn, "IHAVE <2@example.org>");
+            process(new IHaveCommand(), conn, "IHAVE 3@example.org");
+            assertEquals(List.of("435 article not wanted",
+                    "436 article is being transferred; try again later",
+                    "501 syntax error"), conn.responses);
+
+            assertFalse(PeerIngest.isInFlight("<1@example.org>"));
+            assertTrue(PeerIngest.isInFlight("<2@example.org>"));
+        } finally {
+            PeerIngest.release("<2@example.org>");
+        }
+
+        assertTrue(new IHaveCommand().busyResponse("IHAVE <4@example.org>")
+                .startsWith("436 "));
+    }
+
+    public void testIhaveReleasesClaim() throws Exception {
+        IHaveCommand ihave = new IHaveCommand();
+        process(ihave, conn, "IHAVE <1@example.org>");
+        assertEquals(List.of("335 send article to be transferred. "
+                + "End with <CR-LF>.<CR-LF>"), conn.responses);
+        assertTrue(PeerIngest.isInFlight("<1@example.org>"));
+
+        // Rejected because of the wrong Message-ID
+        process(ihave, conn, "Message-ID: <2@example.org>", "", "Body", ".");
+        assertTrue(ihave.hasFinished());
+        assertEquals("437 article rejected; do not try again", conn.responses.get(1));
+        assertFalse(PeerIngest.isInFlight("<1@example.org>"));
+
+        // The response cannot be sent
+        ihave = new IHaveCommand();
+        process(ihave, conn, "IHAVE <1@example.org>", "Message-ID: <2@example.org>", "");
+        conn.failing = true;
+        try {
+            process(ihave, conn, ".");
+            fail("UncheckedIOException expected");
+        } catch (UncheckedIOException ex) {
+            assertFalse(PeerIngest.isInFlight("<1@example.org>"));
+        }
+    }
+}
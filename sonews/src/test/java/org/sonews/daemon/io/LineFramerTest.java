@@ -0,0 +1,101 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.daemon.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for class org.sonews.daemon.io.LineFramer.
+ *
+ * @author Christian Lins
+ * @see org.sonews.daemon.io.LineFramer
+ * @since sonews/2.1
+ */
+public class LineFramerTest extends TestCase {
+
+    private final List<String> lines = new ArrayList<>();
+
+    private void add(byte[] buf, int off, int len) {
+        lines.add(new String(buf, off, len, StandardCharsets.UTF_8));
+    }
+
+    public void testRead() throws IOException {
+        byte[] data = "GROUP test\r\nARTICLE 1\n\r\nä.\r\nincomplete"
+                .getBytes(StandardCharsets.UTF_8);
+        var in = new ByteArrayInputStream(data);
+        var framer = new LineFramer(4, 1024);
+
+        while (framer.read(in, this::add) >= 0) {
+            // Read until the end of the stream
+        }
+
+        assertEquals(List.of("GROUP test", "ARTICLE 1", "", "ä."), lines);
+
+        // The incomplete line is kept until its terminator arrives
+        framer.feed(ByteBuffer.wrap(new byte[] { '\n' }), this::add);
+        assertEquals("incomplete", lines.get(4));
+    }
+
+    public void testFeedSplitCRLF() throws IOException {
+        var framer = new LineFramer(8, 1024);
+        byte[] data = "POST\r\nSubject: x\r\n".getBytes(StandardCharsets.US_ASCII);
+
+        // Feed byte by byte so that CR and LF arrive separately
+        for (int n = 0; n < data.length; n++) {
+            framer.feed(ByteBuffer.wrap(data, n, 1), this::add);
+        }
+
+        assertEquals(List.of("POST", "Subject: x"), lines);
+    }
+
+    public void testFeedDirectBuffers() throws IOException {
+        var framer = new LineFramer(4, 1024);
+        ByteBuffer buf = ByteBuffer.allocateDirect(64);
+
+        // A read ending with the CR, the next one starting with the LF
+        buf.put("ARTICLE <1@example.org>\r".getBytes(StandardCharsets.US_ASCII)).flip();
+        framer.feed(buf, this::add);
+        assertEquals(List.of(), lines);
+        assertFalse(buf.hasRemaining());
+
+        buf.clear();
+        buf.put("\nQUIT\r\n".getBytes(StandardCharsets.US_ASCII)).flip();
+        framer.feed(buf, this::add);
+        assertEquals(List.of("ARTICLE <1@example.org>", "QUIT"), lines);
+    }
+
+    public void testMaxLineLength() {
+        var framer = new LineFramer(4, 16);
+        byte[] data = new byte[32];
+
+        try {
+            framer.feed(ByteBuffer.wrap(data), this::add);
+            fail("Should have raised an IOException");
+        } catch (IOException ex) {
+            // Expected
+        }
+    }
+}
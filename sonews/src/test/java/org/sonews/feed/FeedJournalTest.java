@@ -0,0 +1,135 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.feed;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for class org.sonews.feed.FeedJournal.
+ *
+ * @author Christian Lins
+ * @see org.sonews.feed.FeedJournal
+ * @since sonews/2.1
+ */
+public class FeedJournalTest extends TestCase {
+
+    private Path dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("feedjournal");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    public void testReadAndCommit() throws Exception {
+        FeedJournal journal = new FeedJournal(dir, "peer_119");
+        journal.append("<1@example.org>");
+        journal.append("<2@example.org>");
+        journal.append("<3@example.org>");
+
+        List<FeedJournal.Entry> entries = journal.read(2, 0);
+        assertEquals(2, entries.size());
+        assertEquals("<1@example.org>", entries.get(0).messageID());
+        assertEquals("<2@example.org>", entries.get(1).messageID());
+
+        // Entries stay queued until they are committed
+        assertEquals(entries, journal.read(2, 0));
+
+        journal.commit(entries.get(1));
+        entries = journal.read(10, 0);
+        assertEquals(1, entries.size());
+        assertEquals("<3@example.org>", entries.get(0).messageID());
+
+        // Fully sent journals are truncated
+        journal.commit(entries.get(0));
+        assertEquals(0, journal.backlog());
+        assertEquals(0, Files.size(dir.resolve("peer_119.journal")));
+        journal.close();
+    }
+
+    public void testReopen() throws Exception {
+        FeedJournal journal = new FeedJournal(dir, "peer_119");
+        journal.append("<1@example.org>");
+        journal.append("<2@example.org>");
+        journal.commit(journal.read(1, 0).get(0));
+        journal.close();
+
+        journal = new FeedJournal(dir, "peer_119");
+        List<FeedJournal.Entry> entries = journal.read(10, 0);
+        assertEquals(1, entries.size());
+        assertEquals("<2@example.org>", entries.get(0).messageID());
+        journal.close();
+    }
+
+    public void testCompaction() throws Exception {
+        // Every line has 16 bytes
+        FeedJournal journal = new FeedJournal(dir, "peer_119", 40);
+        for (int n = 1; n <= 5; n++) {
+            journal.append("<" + n + "@example.org>");
+        }
+        List<FeedJournal.Entry> entries = journal.read(10, 0);
+        assertEquals(5, entries.size());
+
+        // Below the compaction size only the cursor moves
+        journal.commit(entries.get(1));
+        assertEquals(80, Files.size(dir.resolve("peer_119.journal")));
+
+        journal.commit(entries.get(2));
+        assertEquals(32, Files.size(dir.resolve("peer_119.journal")));
+        assertEquals(32, journal.backlog());
+
+        // Offsets read before the compaction stay valid
+        journal.append("<6@example.org>");
+        journal.commit(entries.get(3));
+        entries = journal.read(10, 0);
+        assertEquals(2, entries.size());
+        assertEquals("<5@example.org>", entries.get(0).messageID());
+        assertEquals("<6@example.org>", entries.get(1).messageID());
+        journal.close();
+
+        journal = new FeedJournal(dir, "peer_119", 40);
+        assertEquals(entries.get(0).messageID(), journal.read(1, 0).get(0).messageID());
+        assertEquals(32, journal.backlog());
+        journal.close();
+    }
+
+    public void testPartialLine() throws Exception {
+        Files.writeString(dir.resolve("peer_119.journal"), "<1@example.org>\n<2@exa");
+
+        FeedJournal journal = new FeedJournal(dir, "peer_119");
+        journal.append("<3@example.org>");
+        List<FeedJournal.Entry> entries = journal.read(10, 0);
+        assertEquals(3, entries.size());
+        assertEquals("<2@exa", entries.get(1).messageID());
+        assertEquals("<3@example.org>", entries.get(2).messageID());
+        journal.close();
+    }
+}
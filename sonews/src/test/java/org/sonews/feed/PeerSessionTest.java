@@ -0,0 +1,206 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.feed;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.sonews.config.Config;
+import org.sonews.storage.Article;
+import org.sonews.storage.StorageManager;
+import org.sonews.util.Log;
+
+/**
+ * Unit test for class org.sonews.feed.PeerSession. The peer is a thread
+ * answering the commands of the session with a fixed script.
+ *
+ * @author Christian Lins
+ * @see org.sonews.feed.PeerSession
+ * @since sonews/2.1
+ */
+public class PeerSessionTest extends TestCase {
+
+    /**
+     * Fake peer accepting a single connection. Every step of the script is
+     * the expected command line and the response to it. The article
+     * following TAKETHIS, or a 335 or 340 response, is skipped; the response
+     * to the article is the step expecting the terminating ".".
+     */
+    private static class ScriptedPeer extends Thread {
+
+        private final ServerSocket server;
+        private final String[][] script;
+        private final List<String> errors = new ArrayList<>();
+
+        ScriptedPeer(String[]... script) throws IOException {
+            this.server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            this.script = script;
+            setDaemon(true);
+            start();
+        }
+
+        int getPort() {
+            return server.getLocalPort();
+        }
+
+        @Override
+        public void run() {
+            try (server; Socket socket = server.accept()) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        socket.getInputStream(), StandardCharsets.UTF_8));
+                OutputStream out = socket.getOutputStream();
+                out.write("200 fake peer ready\r\n".getBytes(StandardCharsets.UTF_8));
+
+                boolean article = false;
+                for (String[] step : script) {
+                    String line = in.readLine();
+                    while (article && line != null && !line.equals(".")) {
+                        line = in.readLine();
+                    }
+                    if (line != null && line.startsWith("TAKETHIS ")) {
+                        for (String body = in.readLine(); body != null
+                                && !body.equals("."); body = in.readLine()) {
+                            // Skip the article
+                        }
+                    }
+                    if (!step[0].equals(line)) {
+                        errors.add("Expected " + step[0] + ", got " + line);
+                        return;
+                    }
+                    out.write((step[1] + "\r\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    article = step[1].startsWith("335 ") || step[1].startsWith("340 ");
+                }
+
+                String line = in.readLine();
+                if (!"QUIT".equals(line)) {
+                    errors.add("Expected QUIT, got " + line);
+                }
+            } catch (IOException ex) {
+                errors.add(ex.toString());
+            }
+        }
+
+        void verify() throws InterruptedException {
+            join(5000);
+            assertFalse("Peer has not finished", isAlive());
+            assertEquals(List.of(), errors);
+        }
+    }
+
+    private static Article article(int n) {
+        return StorageManager.createArticle("Message-ID: <" + n + "@example.org>\r\n"
+                + "Subject: Test " + n + "\r\n",
+                "Body\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        if (Log.get() == null) {
+            // Keep the config file of the working directory untouched
+            Path config = Files.createTempFile("sonews", ".conf");
+            Config.inst().set(Config.LEVEL_CLI, Config.CONFIGFILE, config.toString());
+            new Log();
+            Files.delete(config);
+        }
+    }
+
+    public void testStream() throws Exception {
+        ScriptedPeer peer = new ScriptedPeer(
+                new String[] { "MODE STREAM", "203 streaming permitted" },
+                new String[] { "CHECK <1@example.org>", "238 <1@example.org>" },
+                new String[] { "CHECK <2@example.org>", "431 <2@example.org>" },
+                new String[] { "CHECK <3@example.org>", "238 <3@example.org>" },
+                new String[] { "CHECK <4@example.org>", "438 <4@example.org>" },
+                new String[] { "CHECK <5@example.org>", "238 <5@example.org>" },
+                new String[] { "TAKETHIS <1@example.org>", "239 <1@example.org>" },
+                new String[] { "TAKETHIS <3@example.org>", "439 <3@example.org>" },
+                new String[] { "TAKETHIS <5@example.org>", "239 <5@example.org>" });
+
+        try (PeerSession session = new PeerSession("127.0.0.1", peer.getPort())) {
+            assertEquals(PeerSession.Mode.STREAM, session.getMode());
+
+            List<PeerSession.Result> results = session.send(List.of(
+                    article(1), article(2), article(3), article(4), article(5)));
+            assertEquals(List.of(
+                    PeerSession.Result.ACCEPTED,
+                    PeerSession.Result.DEFERRED,
+                    PeerSession.Result.REFUSED,
+                    PeerSession.Result.REFUSED,
+                    PeerSession.Result.ACCEPTED), results);
+        }
+        peer.verify();
+    }
+
+    public void testIhaveFallsBackToPost() throws Exception {
+        ScriptedPeer peer = new ScriptedPeer(
+                new String[] { "MODE STREAM", "500 unknown command" },
+                new String[] { "IHAVE <1@example.org>", "335 send it" },
+                new String[] { ".", "235 article transferred" },
+                new String[] { "IHAVE <2@example.org>", "435 not wanted" },
+                new String[] { "IHAVE <3@example.org>", "436 try again later" },
+                new String[] { "IHAVE <4@example.org>", "502 not permitted" },
+                new String[] { "POST", "340 send article" },
+                new String[] { ".", "240 article posted" },
+                new String[] { "POST", "340 send article" },
+                new String[] { ".", "441 posting failed" });
+
+        try (PeerSession session = new PeerSession("127.0.0.1", peer.getPort())) {
+            assertEquals(PeerSession.Mode.IHAVE, session.getMode());
+
+            List<PeerSession.Result> results = session.send(List.of(
+                    article(1), article(2), article(3), article(4)));
+            assertEquals(List.of(
+                    PeerSession.Result.ACCEPTED,
+                    PeerSession.Result.REFUSED,
+                    PeerSession.Result.DEFERRED,
+                    PeerSession.Result.ACCEPTED), results);
+            assertEquals(PeerSession.Mode.POST, session.getMode());
+
+            // Later articles are posted right away
+            assertEquals(List.of(PeerSession.Result.REFUSED),
+                    session.send(List.of(article(5))));
+        }
+        peer.verify();
+    }
+
+    public void testUnexpectedResponse() throws Exception {
+        ScriptedPeer peer = new ScriptedPeer(
+                new String[] { "MODE STREAM", "203 streaming permitted" },
+                new String[] { "CHECK <1@example.org>", "400 service discontinued" });
+
+        try (PeerSession session = new PeerSession("127.0.0.1", peer.getPort())) {
+            session.send(List.of(article(1)));
+            fail("IOException expected");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains("400 service discontinued"));
+        }
+        peer.verify();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.feed;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for class org.sonews.feed.PullMarks.
+ *
+ * @author Christian Lins
+ * @see org.sonews.feed.PullMarks
+ * @since sonews/2.1
+ */
+public class PullMarksTest extends TestCase {
+
+    private Path dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("pullmarks");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    public void testSurvivesReopen() throws Exception {
+        Subscription sub1 = new Subscription("news.example.org", 119, FeedManager.PULL, "local.test");
+        Subscription sub2 = new Subscription("news.example.org", 563, FeedManager.PULL, "local.test");
+
+        PullMarks marks = new PullMarks(dir.resolve("pull.marks"));
+        assertEquals(0, marks.get(sub1));
+        marks.put(sub1, 1000);
+        marks.put(sub2, 42);
+        marks.put(sub1, 2000);
+
+        marks = new PullMarks(dir.resolve("pull.marks"));
+        assertEquals(2000, marks.get(sub1));
+        assertEquals(42, marks.get(sub2));
+        assertFalse(Files.exists(dir.resolve("pull.marks.tmp")));
+    }
+
+    public void testSkipsInvalidLines() throws Exception {
+        Files.writeString(dir.resolve("pull.marks"),
+                "news.example.org:119 local.test 17\ngarbage\nhost:119 group x\n");
+
+        PullMarks marks = new PullMarks(dir.resolve("pull.marks"));
+        assertEquals(17, marks.get(
+                new Subscription("news.example.org", 119, FeedManager.PULL, "local.test")));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.feed;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for class org.sonews.feed.PullSchedule.
+ *
+ * @author Christian Lins
+ * @see org.sonews.feed.PullSchedule
+ * @since sonews/2.1
+ */
+public class PullScheduleTest extends TestCase {
+
+    public void testIntervalAdapts() {
+        PullSchedule schedule = new PullSchedule(60, 480);
+        assertTrue(schedule.isDue(0));
+
+        // Quiet group: the interval doubles up to the maximum
+        schedule.pulled(0, 0);
+        assertEquals(120, schedule.getInterval());
+        assertEquals(120, schedule.getNextPull());
+        assertFalse(schedule.isDue(119));
+        assertTrue(schedule.isDue(120));
+        schedule.pulled(120, 0);
+        schedule.pulled(360, 0);
+        schedule.pulled(840, 0);
+        assertEquals(480, schedule.getInterval());
+
+        // Active group: the interval halves down to the minimum
+        schedule.pulled(1320, 5);
+        assertEquals(240, schedule.getInterval());
+        schedule.pulled(1560, 1);
+        schedule.pulled(1680, 1);
+        schedule.pulled(1740, 1);
+        assertEquals(60, schedule.getInterval());
+    }
+
+    public void testFailedKeepsInterval() {
+        PullSchedule schedule = new PullSchedule(60, 480);
+        schedule.pulled(0, 3);
+        schedule.failed(60);
+        assertEquals(60, schedule.getInterval());
+        assertEquals(120, schedule.getNextPull());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage;
+
+import java.util.Map;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for class org.sonews.storage.GroupStatistics.
+ *
+ * @author Christian Lins
+ * @see org.sonews.storage.GroupStatistics
+ * @since sonews/2.1
+ */
+public class GroupStatisticsTest extends TestCase {
+
+    private final Group group = new Group("local.test", 1, 0);
+    private final Group other = new Group("local.other", 2, 0);
+
+    private GroupStatistics load(Map<Long, GroupStatistics.Entry> stats) {
+        var gs = new GroupStatistics();
+        gs.reloading();
+        gs.reloaded(stats);
+        return gs;
+    }
+
+    public void testNotLoaded() {
+        assertNull(new GroupStatistics().get(group));
+    }
+
+    public void testAdded() {
+        var gs = load(Map.of(1L, new GroupStatistics.Entry(3, 5, 9)));
+        gs.added(group);
+        assertEquals(new GroupStatistics.Entry(4, 5, 10), gs.get(group));
+        assertEquals(new GroupStatistics.Entry(0, 0, 0), gs.get(other));
+    }
+
+    public void testAddedAfterNewestExpired() {
+        // Articles 9 and 10 have expired, the watermark is still 10
+        var gs = load(Map.of(1L, new GroupStatistics.Entry(2, 5, 10)));
+        gs.added(group);
+        assertEquals(new GroupStatistics.Entry(3, 5, 11), gs.get(group));
+    }
+
+    public void testAddedToEmptyGroup() {
+        // All articles up to 10 have expired
+        var gs = load(Map.of(1L, new GroupStatistics.Entry(0, 11, 10)));
+        gs.added(group);
+        assertEquals(new GroupStatistics.Entry(1, 11, 11), gs.get(group));
+
+        // A group unknown to the loaded statistics
+        gs.added(other);
+        assertEquals(new GroupStatistics.Entry(1, 1, 1), gs.get(other));
+    }
+
+    public void testAddedDuringReload() {
+        var gs = load(Map.of(1L, new GroupStatistics.Entry(3, 5, 9)));
+
+        gs.reloading();
+        gs.added(group);
+        // The reloaded statistics already contain the new article
+        gs.reloaded(Map.of(1L, new GroupStatistics.Entry(4, 5, 10)));
+
+        var e = gs.get(group);
+        assertTrue(e.count() >= 4);
+        assertEquals(10, e.last());
+    }
+
+    public void testHighWaterMarkDoesNotDecrease() {
+        var gs = load(Map.of(1L, new GroupStatistics.Entry(3, 5, 9)));
+
+        gs.reloading();
+        gs.added(group);
+        // The reloaded statistics miss the new article
+        gs.reloaded(Map.of(1L, new GroupStatistics.Entry(3, 5, 9)));
+
+        assertEquals(new GroupStatistics.Entry(4, 5, 10), gs.get(group));
+    }
+
+    public void testRemoved() {
+        var gs = load(Map.of(1L, new GroupStatistics.Entry(3, 5, 9)));
+        gs.removed(group);
+        assertEquals(0, gs.get(group).count());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.storage;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for class org.sonews.storage.Overview.
+ *
+ * @author Christian Lins
+ * @see org.sonews.storage.Overview
+ * @since sonews/2.1
+ */
+public class OverviewTest extends TestCase {
+
+    public void testFormat() {
+        Article art = StorageManager.createArticle(
+                "Subject: Hello\r\n"
+                + "From: user@example.org\r\n"
+                + "Date: Mon, 1 Jan 2024 00:00:00 +0000\r\n"
+                + "Message-ID: <1@example.org>\r\n"
+                + "References: <0@example.org>\r\n"
+                + "Bytes: 42\r\n"
+                + "Lines: 3\r\n", null);
+
+        assertEquals("Hello\tuser@example.org\tMon, 1 Jan 2024 00:00:00 +0000\t"
+                + "<1@example.org>\t<0@example.org>\t42\t3", Overview.format(art));
+        assertEquals("7\tHello", Overview.line(7, "Hello"));
+    }
+
+    public void testEscapeAndDefaults() {
+        Article art = StorageManager.createArticle(
+                "Subject: \r\n"
+                + "From: a\tb\r\n"
+                + "Message-ID: <2@example.org>\r\n", null);
+
+        assertEquals("<empty>\ta b\t\t<2@example.org>\t\t0\t0", Overview.format(art));
+    }
+}
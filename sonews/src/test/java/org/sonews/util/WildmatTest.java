@@ -0,0 +1,77 @@
+/*
+ *   SONEWS News Server
+ *   Copyright (C) 2009-2024  Christian Lins <christian@lins.me>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.sonews.util;
+
+import java.util.regex.PatternSyntaxException;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for class org.sonews.util.Wildmat.
+ *
+ * @author Christian Lins
+ * @see org.sonews.util.Wildmat
+ * @since sonews/2.1
+ */
+public class WildmatTest extends TestCase {
+
+    public void testMatches() {
+        var wm = new Wildmat("Re: *sonews?");
+        assertTrue(wm.matches("Re: about sonews!"));
+        assertFalse(wm.matches("Re: about sonews"));
+        assertFalse(wm.matches("Fwd: about sonews!"));
+
+        // Regex characters are literals
+        assertTrue(new Wildmat("a.b(c)").matches("a.b(c)"));
+        assertFalse(new Wildmat("a.b").matches("axb"));
+    }
+
+    public void testCharacterClass() {
+        var wm = new Wildmat("[a-c]x[^0-9]");
+        assertTrue(wm.matches("bxy"));
+        assertFalse(wm.matches("dxy"));
+        assertFalse(wm.matches("bx1"));
+        assertTrue(new Wildmat("[]d]").matches("]"));
+    }
+
+    public void testList() {
+        var wm = new Wildmat("comp.*,!comp.os.*,comp.os.linux");
+        assertTrue(wm.matches("comp.lang.java"));
+        assertFalse(wm.matches("comp.os.vms"));
+        assertTrue(wm.matches("comp.os.linux"));
+        assertFalse(wm.matches("alt.test"));
+    }
+
+    public void testToLike() {
+        assertEquals("Re: %sonews_", new Wildmat("Re: *sonews?").toLike());
+        assertEquals("100!% !_ !!", new Wildmat("100% _ !").toLike());
+        assertEquals("a*b", new Wildmat("a\\*b").toLike());
+        assertNull(new Wildmat("[ab]*").toLike());
+        assertNull(new Wildmat("a*,b*").toLike());
+        assertNull(new Wildmat("!a*").toLike());
+    }
+
+    public void testSyntaxError() {
+        try {
+            new Wildmat("[abc");
+            fail();
+        } catch (PatternSyntaxException ex) {
+            // Expected
+        }
+    }
+}
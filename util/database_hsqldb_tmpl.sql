@@ -19,6 +19,7 @@ CREATE CACHED TABLE articles
 (
   article_id    INT,
   body          VARBINARY,
+  arrival       BIGINT,
 
   PRIMARY KEY(article_id)
 );
@@ -68,5 +69,32 @@ CREATE CACHED TABLE postings
   FOREIGN KEY(group_id) REFERENCES groups(group_id) ON DELETE CASCADE,
 );
 
+/*
+  Precomputed overview fields (OVER command) of every posting
+*/
+CREATE CACHED TABLE overview
+(
+  group_id      INTEGER,
+  article_index INTEGER,
+  article_id    INTEGER,
+  overview      LONGVARCHAR,
+
+  PRIMARY KEY(group_id, article_index),
+  FOREIGN KEY(article_id) REFERENCES articles(article_id) ON DELETE CASCADE,
+  FOREIGN KEY(group_id) REFERENCES groups(group_id) ON DELETE CASCADE
+);
+
+/*
+  Counters from which IDs are reserved in blocks, e.g. the article IDs
+*/
+CREATE CACHED TABLE sequences
+(
+  sequence_name VARCHAR(64),
+  next_value    INTEGER NOT NULL,
+
+  PRIMARY KEY(sequence_name)
+);
+INSERT INTO sequences (sequence_name, next_value) VALUES ('article_id', 1);
+
 COMMIT;
 SHUTDOWN;
@@ -27,6 +27,7 @@ CREATE TABLE articles
 (
   article_id    INT,
   body          LONGBLOB,
+  arrival       BIGINT,
 
   PRIMARY KEY(article_id)
 )
@@ -45,6 +46,37 @@ CREATE TABLE article_ids
 ENGINE = INNODB
 CHARACTER SET utf8;
 
+/*
+  Precomputed overview fields (OVER command) of every posting
+*/
+CREATE TABLE overview
+(
+  group_id      INTEGER,
+  article_index BIGINT,
+  article_id    INTEGER,
+  overview      TEXT,
+
+  PRIMARY KEY(group_id, article_index),
+  FOREIGN KEY (group_id) REFERENCES `groups`(group_id) ON DELETE CASCADE,
+  FOREIGN KEY (article_id) REFERENCES articles(article_id) ON DELETE CASCADE
+)
+ENGINE = INNODB
+CHARACTER SET utf8;
+
+/*
+  Counters from which IDs are reserved in blocks, e.g. the article IDs
+*/
+CREATE TABLE sequences
+(
+  sequence_name VARCHAR(64),
+  next_value    INTEGER NOT NULL,
+
+  PRIMARY KEY(sequence_name)
+)
+ENGINE = INNODB
+CHARACTER SET utf8;
+INSERT INTO sequences (sequence_name, next_value) VALUES ('article_id', 1);
+
 CREATE TABLE headers
 (
   article_id    INT,
@@ -5,6 +5,7 @@ CREATE TABLE articles
 (
   article_id    INT,
   body          BYTEA,
+  arrival       BIGINT,
 
   PRIMARY KEY(article_id)
 );
@@ -59,3 +60,32 @@ CREATE TABLE postings
 );
 ALTER TABLE postings
   OWNER TO sonews;
+
+/*
+  Precomputed overview fields (OVER command) of every posting
+*/
+CREATE TABLE overview
+(
+  group_id      INTEGER REFERENCES groups (group_id) ON DELETE CASCADE,
+  article_index BIGINT,
+  article_id    INTEGER REFERENCES articles (article_id) ON DELETE CASCADE,
+  overview      TEXT,
+
+  PRIMARY KEY(group_id, article_index)
+);
+ALTER TABLE overview
+  OWNER TO sonews;
+
+/*
+  Counters from which IDs are reserved in blocks, e.g. the article IDs
+*/
+CREATE TABLE sequences
+(
+  sequence_name VARCHAR(64),
+  next_value    INTEGER NOT NULL,
+
+  PRIMARY KEY(sequence_name)
+);
+ALTER TABLE sequences
+  OWNER TO sonews;
+INSERT INTO sequences (sequence_name, next_value) VALUES ('article_id', 1);